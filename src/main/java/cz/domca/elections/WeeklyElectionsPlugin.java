@@ -12,12 +12,16 @@ import cz.domca.elections.elections.ElectionManager;
 import cz.domca.elections.gui.GuiManager;
 import cz.domca.elections.holograms.HologramManager;
 import cz.domca.elections.listeners.NPCListener;
+import cz.domca.elections.listeners.RegionListener;
+import cz.domca.elections.luckperms.LuckPermsAdapter;
+import cz.domca.elections.luckperms.RegionContextCalculator;
 import cz.domca.elections.npc.NPCManager;
 import cz.domca.elections.regions.RegionManager;
 import cz.domca.elections.registration.CandidateRegistrationManager;
 import cz.domca.elections.reputation.ReputationManager;
 import cz.domca.elections.roles.RoleAssignmentManager;
-import cz.domca.elections.tasks.ElectionTask;
+import cz.domca.elections.tasks.PhaseScheduler;
+import cz.domca.elections.tasks.ResultsTransition;
 import net.luckperms.api.LuckPerms;
 import net.milkbowl.vault.economy.Economy;
 
@@ -35,7 +39,11 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
     private ReputationManager reputationManager;
     private CandidateRegistrationManager registrationManager;
     private RoleAssignmentManager roleAssignmentManager;
+    private PhaseScheduler phaseScheduler;
+    private ResultsTransition resultsTransition;
     private LuckPerms luckPerms;
+    private LuckPermsAdapter luckPermsAdapter;
+    private RegionContextCalculator regionContextCalculator;
     private Economy economy;
     
     @Override
@@ -62,6 +70,7 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
         try {
             // Initialize managers
             this.configManager = new ConfigManager(this);
+            this.luckPermsAdapter = new LuckPermsAdapter(this);
             this.databaseManager = new DatabaseManager(this);
             this.regionManager = new RegionManager(this);
             this.reputationManager = new ReputationManager(this);
@@ -71,6 +80,8 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
             this.guiManager = new GuiManager(this);
             this.registrationManager = new CandidateRegistrationManager(this);
             this.roleAssignmentManager = new RoleAssignmentManager(this);
+            this.phaseScheduler = new PhaseScheduler(this);
+            this.resultsTransition = new ResultsTransition(this);
             
             // Load configurations
             configManager.loadConfigs();
@@ -81,6 +92,12 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
             // Initialize election manager (after database is ready)
             electionManager.initialize();
             
+            // Schedule expiry of active mandates
+            roleAssignmentManager.initialize();
+            
+            // Load cached candidate head textures
+            guiManager.initialize();
+            
             // Load regions
             regionManager.loadRegions();
             
@@ -89,14 +106,26 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
             
             // Register listeners
             getServer().getPluginManager().registerEvents(new NPCListener(this), this);
+            getServer().getPluginManager().registerEvents(new RegionListener(this), this);
+            
+            // Supply the region context of elected roles
+            this.regionContextCalculator = new RegionContextCalculator(this);
+            regionContextCalculator.register();
             
             // Register commands
             ElectionCommands commandHandler = new ElectionCommands(this);
             getCommand("volby").setExecutor(commandHandler);
             getCommand("volby").setTabCompleter(commandHandler);
             
-            // Start election task
-            new ElectionTask(this).runTaskTimer(this, 20L, 1200L); // Run every minute
+            // Finish rewards and roles of a results transition interrupted by a crash
+            resultsTransition.resume();
+            
+            // Arm the end of the current phase, overdue transitions run right away
+            phaseScheduler.schedule();
+            
+            // Write buffered votes to the database
+            long flushTicks = configManager.getVoteFlushInterval() * 20L;
+            getServer().getScheduler().runTaskTimer(this, electionManager::flushVotes, flushTicks, flushTicks);
             
             getLogger().info("WeeklyElections plugin enabled successfully!");
             
@@ -110,6 +139,30 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
     public void onDisable() {
         getLogger().info("Disabling WeeklyElections plugin...");
         
+        if (regionContextCalculator != null) {
+            regionContextCalculator.unregister();
+        }
+        
+        if (luckPermsAdapter != null) {
+            luckPermsAdapter.shutdown();
+        }
+        
+        if (roleAssignmentManager != null) {
+            roleAssignmentManager.shutdown();
+        }
+        
+        if (phaseScheduler != null) {
+            phaseScheduler.shutdown();
+        }
+        
+        if (guiManager != null) {
+            guiManager.shutdown();
+        }
+        
+        if (electionManager != null) {
+            electionManager.shutdown();
+        }
+        
         if (databaseManager != null) {
             databaseManager.shutdown();
         }
@@ -195,10 +248,22 @@ public class WeeklyElectionsPlugin extends JavaPlugin {
         return roleAssignmentManager;
     }
     
+    public PhaseScheduler getPhaseScheduler() {
+        return phaseScheduler;
+    }
+    
+    public ResultsTransition getResultsTransition() {
+        return resultsTransition;
+    }
+    
     public LuckPerms getLuckPerms() {
         return luckPerms;
     }
     
+    public LuckPermsAdapter getLuckPermsAdapter() {
+        return luckPermsAdapter;
+    }
+    
     public Economy getEconomy() {
         return economy;
     }
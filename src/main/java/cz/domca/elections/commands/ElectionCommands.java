@@ -1,5 +1,6 @@
 package cz.domca.elections.commands;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -16,6 +17,8 @@ import cz.domca.elections.WeeklyElectionsPlugin;
 import cz.domca.elections.elections.Candidate;
 import cz.domca.elections.elections.Election;
 import cz.domca.elections.elections.ElectionPhase;
+import cz.domca.elections.elections.ElectionResults;
+import cz.domca.elections.elections.ElectionState;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 
@@ -32,9 +35,9 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         
         if (args.length == 0) {
             if (sender instanceof Player) {
-                // Open main GUI for current region
+                // Open main GUI for the region the player is in, or another voting region
                 Player player = (Player) sender;
-                String currentRegion = plugin.getRegionManager().getCurrentActiveRegion();
+                String currentRegion = plugin.getRegionManager().getActiveRegion(player);
                 if (currentRegion != null) {
                     plugin.getGuiManager().openMainMenu(player, currentRegion);
                 } else {
@@ -51,43 +54,43 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         switch (subCommand) {
             case "help":
                 return handleHelp(sender);
-                
+            
             case "start":
-                return handleStartElection(sender);
-                
+                return handleStartElection(sender, args);
+            
             case "progress":
-                return handleProgressPhase(sender);
-                
+                return handleProgressPhase(sender, args);
+            
             case "reload":
                 return handleReload(sender);
-                
+            
             case "rotate":
-                return handleRotate(sender);
-                
+                return handleRotate(sender, args);
+            
             case "cycle":
-                return handleCycleRotation(sender);
-                
+                return handleCycleRotation(sender, args);
+            
             case "status":
-                return handleStatus(sender);
-                
+                return handleStatus(sender, args);
+            
             case "reputation":
                 return handleReputation(sender, args);
-                
+            
             case "fixnpcs":
                 return handleFixNPCs(sender);
-                
+            
             case "removenpc":
                 return handleRemoveNPC(sender, args);
-                
+            
             case "cleanupnpcs":
                 return handleCleanupNPCs(sender);
-                
+            
             case "region":
                 return handleRegionCommands(sender, args);
-                
+            
             case "whereami":
                 return handleWhereAmI(sender);
-                
+            
             default:
                 // Check if it's a region ID for creating NPC
                 if (plugin.getRegionManager().getRegion(args[0]) != null) {
@@ -122,13 +125,22 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
             return completions.stream()
                     .filter(comp -> comp.toLowerCase().startsWith(args[0].toLowerCase()))
                     .collect(Collectors.toList());
-                    
+        
         } else if (args.length == 2 && args[0].equalsIgnoreCase("reputation")) {
             // Tab complete player names for reputation command
             return plugin.getServer().getOnlinePlayers().stream()
                     .map(Player::getName)
                     .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
                     .collect(Collectors.toList());
+        } else if (args.length == 2 && Arrays.asList("start", "progress", "rotate", "cycle", "status").contains(args[0].toLowerCase())) {
+            // Tab complete region IDs of commands working on one region's election
+            List<String> regions = new ArrayList<>(plugin.getRegionManager().getRegionRotation());
+            if (args[0].equalsIgnoreCase("start")) {
+                regions.add("all");
+            }
+            return regions.stream()
+                    .filter(region -> region.toLowerCase().startsWith(args[1].toLowerCase()))
+                    .collect(Collectors.toList());
         } else if (args.length == 2 && args[0].equalsIgnoreCase("removenpc")) {
             // Tab complete region IDs for removenpc command
             return plugin.getRegionManager().getRegionRotation().stream()
@@ -153,16 +165,16 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         sender.sendMessage(colorize("&6=== Nápověda pro volby ==="));
         sender.sendMessage(colorize("&e/volby &7- Otevřít hlavní menu voleb"));
         sender.sendMessage(colorize("&e/volby help &7- Zobrazit tuto nápovědu"));
-        sender.sendMessage(colorize("&e/volby status &7- Zobrazit stav aktuálních voleb"));
+        sender.sendMessage(colorize("&e/volby status [region] &7- Zobrazit stav aktuálních voleb"));
         sender.sendMessage(colorize("&e/volby whereami &7- Zobrazit aktuální region"));
         
         if (sender.hasPermission("elections.admin")) {
             sender.sendMessage(colorize("&6=== Admin příkazy ==="));
-            sender.sendMessage(colorize("&e/volby start &7- Spustit nové volby"));
-            sender.sendMessage(colorize("&e/volby progress &7- Posunout fázi voleb"));
+            sender.sendMessage(colorize("&e/volby start [region|all] &7- Spustit nové volby"));
+            sender.sendMessage(colorize("&e/volby progress [region] &7- Posunout fázi voleb"));
             sender.sendMessage(colorize("&e/volby reload &7- Znovu načíst konfiguraci"));
-            sender.sendMessage(colorize("&e/volby rotate &7- Manuálně posunout volby"));
-            sender.sendMessage(colorize("&e/volby cycle &7- Ukončit a přejít na další region"));
+            sender.sendMessage(colorize("&e/volby rotate [region] &7- Manuálně posunout volby"));
+            sender.sendMessage(colorize("&e/volby cycle [region] &7- Ukončit a přejít na další region"));
             sender.sendMessage(colorize("&e/volby reputation <hráč> <±množství> &7- Upravit reputaci"));
             sender.sendMessage(colorize("&e/volby fixnpcs &7- Opravit chybějící NPC"));
             sender.sendMessage(colorize("&e/volby removenpc <region> &7- Odstranit NPC a hologram"));
@@ -174,43 +186,73 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         return true;
     }
 
-    private boolean handleStartElection(CommandSender sender) {
+    private boolean handleStartElection(CommandSender sender, String[] args) {
         if (!sender.hasPermission("elections.admin")) {
             sender.sendMessage(colorize("&cNemáte oprávnění k tomuto příkazu!"));
             return true;
         }
         
-        if (plugin.getElectionManager().isElectionActive()) {
+        // Without a region the first region of the rotation that does not vote yet
+        List<String> regions = new ArrayList<>();
+        if (args.length >= 2 && args[1].equalsIgnoreCase("all")) {
+            for (String regionId : plugin.getRegionManager().getRegionRotation()) {
+                if (plugin.getElectionManager().getElection(regionId) == null) {
+                    regions.add(regionId);
+                }
+            }
+        } else if (args.length >= 2) {
+            if (plugin.getRegionManager().getRegion(args[1]) == null) {
+                sender.sendMessage(colorize("&cRegion " + args[1] + " neexistuje!"));
+                return true;
+            }
+            if (plugin.getElectionManager().getElection(args[1]) == null) {
+                regions.add(args[1]);
+            }
+        } else {
+            List<String> rotation = plugin.getRegionManager().getRegionRotation();
+            String firstRegion = rotation.isEmpty() ? null : plugin.getElectionManager().getNextFreeRegion(rotation.get(rotation.size() - 1));
+            if (firstRegion != null) {
+                regions.add(firstRegion);
+            }
+        }
+        
+        if (regions.isEmpty()) {
             sender.sendMessage(colorize("&cVolby již jsou aktivní!"));
             return true;
         }
         
-        try {
-            String firstRegion = plugin.getRegionManager().getRegionRotation().get(0);
-            plugin.getElectionManager().startNewElection(firstRegion);
-            sender.sendMessage(colorize("&aVolby byly spuštěny v regionu: " + 
-                plugin.getRegionManager().getRegion(firstRegion).getDisplayName()));
-        } catch (Exception e) {
-            sender.sendMessage(colorize("&cChyba při spuštění voleb: " + e.getMessage()));
-            plugin.getLogger().severe("Failed to start election: " + e.getMessage());
+        for (String regionId : regions) {
+            try {
+                plugin.getElectionManager().startNewElection(regionId).thenAccept(election -> {
+                    if (election != null) {
+                        sender.sendMessage(colorize("&aVolby byly spuštěny v regionu: " +
+                            plugin.getRegionManager().getRegion(regionId).getDisplayName()));
+                    } else {
+                        sender.sendMessage(colorize("&cChyba při spuštění voleb v regionu " + regionId + "!"));
+                    }
+                });
+            } catch (Exception e) {
+                sender.sendMessage(colorize("&cChyba při spuštění voleb: " + e.getMessage()));
+                plugin.getLogger().severe("Failed to start election in region " + regionId + ": " + e.getMessage());
+            }
         }
         
         return true;
     }
     
-    private boolean handleProgressPhase(CommandSender sender) {
+    private boolean handleProgressPhase(CommandSender sender, String[] args) {
         if (!sender.hasPermission("elections.admin")) {
             sender.sendMessage(colorize("&cNemáte oprávnění k tomuto příkazu!"));
             return true;
         }
         
-        if (!plugin.getElectionManager().isElectionActive()) {
-            sender.sendMessage(colorize("&cNejsou aktivní žádné volby!"));
+        String regionId = resolveElectionRegion(sender, args, "progress");
+        if (regionId == null) {
             return true;
         }
         
         try {
-            plugin.getElectionManager().progressElection();
+            plugin.getElectionManager().progressElection(regionId);
             sender.sendMessage(colorize("&aFáze voleb byla posunuta vpřed!"));
         } catch (Exception e) {
             sender.sendMessage(colorize("&cChyba při posunu fáze: " + e.getMessage()));
@@ -229,6 +271,10 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         try {
             plugin.getConfigManager().reloadConfigs();
             plugin.getRegionManager().loadRegions();
+            // Phase durations may have changed
+            plugin.getPhaseScheduler().schedule();
+            // So may the live update interval of open menus
+            plugin.getGuiManager().reload();
             sender.sendMessage(colorize("&aKonfigurace byla úspěšně znovu načtena!"));
         } catch (Exception e) {
             sender.sendMessage(colorize("&cChyba při načítání konfigurace: " + e.getMessage()));
@@ -237,14 +283,19 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         return true;
     }
     
-    private boolean handleRotate(CommandSender sender) {
+    private boolean handleRotate(CommandSender sender, String[] args) {
         if (!sender.hasPermission("elections.admin")) {
             sender.sendMessage(colorize("&cNemáte oprávnění k tomuto příkazu!"));
             return true;
         }
         
+        String regionId = resolveElectionRegion(sender, args, "rotate");
+        if (regionId == null) {
+            return true;
+        }
+        
         try {
-            plugin.getElectionManager().progressElection();
+            plugin.getElectionManager().progressElection(regionId);
             sender.sendMessage(colorize("&aVolby byly manuálně posunuty do další fáze!"));
         } catch (Exception e) {
             sender.sendMessage(colorize("&cChyba při posunu voleb: " + e.getMessage()));
@@ -254,29 +305,27 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         return true;
     }
     
-    private boolean handleCycleRotation(CommandSender sender) {
+    private boolean handleCycleRotation(CommandSender sender, String[] args) {
         if (!sender.hasPermission("elections.admin")) {
             sender.sendMessage(colorize("&cNemáte oprávnění k tomuto příkazu!"));
             return true;
         }
         
+        String regionId = resolveElectionRegion(sender, args, "cycle");
+        if (regionId == null) {
+            return true;
+        }
+        
         try {
-            // End current election and start new one in next region
-            if (plugin.getElectionManager().isElectionActive()) {
-                String currentRegion = plugin.getElectionManager().getCurrentElection().getRegionId();
-                String nextRegion = plugin.getRegionManager().getNextRegion(currentRegion);
-                
-                // End current election properly
-                plugin.getElectionManager().endCurrentElection();
-                
-                // Start new election in next region
-                plugin.getElectionManager().startNewElection(nextRegion);
-                
-                sender.sendMessage(colorize("&aVolby byly ukončeny a cyklus byl přesunut do regionu: " + 
-                    plugin.getRegionManager().getRegion(nextRegion).getDisplayName()));
-            } else {
-                sender.sendMessage(colorize("&cŽádné aktivní volby k ukončení!"));
-            }
+            // End the region's election and start a new one in the next free region
+            plugin.getElectionManager().rotateElection(regionId).thenAccept(election -> {
+                if (election != null) {
+                    sender.sendMessage(colorize("&aVolby byly ukončeny a cyklus byl přesunut do regionu: " +
+                        plugin.getRegionManager().getRegion(election.getRegionId()).getDisplayName()));
+                } else {
+                    sender.sendMessage(colorize("&cChyba při rotaci cyklu!"));
+                }
+            });
         } catch (Exception e) {
             sender.sendMessage(colorize("&cChyba při rotaci cyklu: " + e.getMessage()));
             plugin.getLogger().severe("Failed to rotate cycle: " + e.getMessage());
@@ -285,45 +334,61 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         return true;
     }
     
-    private boolean handleStatus(CommandSender sender) {
-        Election currentElection = plugin.getElectionManager().getCurrentElection();
+    private boolean handleStatus(CommandSender sender, String[] args) {
+        List<ElectionState> states;
+        if (args.length >= 2) {
+            ElectionState state = plugin.getElectionManager().getState(args[1]);
+            if (state == null) {
+                sender.sendMessage(colorize("&cV regionu " + args[1] + " momentálně neprobíhají žádné volby."));
+                return true;
+            }
+            states = List.of(state);
+        } else {
+            states = plugin.getElectionManager().getStates();
+        }
         
-        if (currentElection == null) {
+        if (states.isEmpty()) {
             sender.sendMessage(colorize("&cMomentálně neprobíhají žádné volby."));
             sender.sendMessage(colorize("&7Použijte &e/volby start &7pro zahájení nových voleb."));
             return true;
         }
         
+        for (ElectionState state : states) {
+            sendElectionStatus(sender, state);
+        }
+        
+        return true;
+    }
+    
+    // Phase, candidates and votes all come from the same snapshot
+    private void sendElectionStatus(CommandSender sender, ElectionState state) {
+        String regionId = state.getRegionId();
         sender.sendMessage(colorize("&6=== Stav voleb ==="));
-        sender.sendMessage(colorize("&eRegion: &f" + currentElection.getRegionId()));
-        sender.sendMessage(colorize("&eFáze: &f" + currentElection.getPhase().name()));
+        sender.sendMessage(colorize("&eRegion: &f" + regionId));
+        sender.sendMessage(colorize("&eFáze: &f" + state.getPhase().name()));
         
+        // Active elections have no end time, show when the current phase ends
+        Instant phaseEnd = plugin.getPhaseScheduler().getNextTransition(regionId);
         long now = System.currentTimeMillis();
-        long endTimeMillis = currentElection.getEndTime().toEpochMilli();
-        long timeLeft = endTimeMillis - now;
+        long timeLeft = phaseEnd != null ? phaseEnd.toEpochMilli() - now : 0;
         
         if (timeLeft > 0) {
             long days = timeLeft / (1000 * 60 * 60 * 24);
             long hours = (timeLeft % (1000 * 60 * 60 * 24)) / (1000 * 60 * 60);
-            sender.sendMessage(colorize("&eČas do konce voleb: &f" + days + " dní, " + hours + " hodin"));
+            sender.sendMessage(colorize("&eČas do konce fáze: &f" + days + " dní, " + hours + " hodin"));
         } else {
             sender.sendMessage(colorize("&cVolby již skončily!"));
         }
         
         // Show candidates if in voting or results phase
-        if (currentElection.getPhase() == ElectionPhase.VOTING || currentElection.getPhase() == ElectionPhase.RESULTS) {
-            List<Candidate> candidates = plugin.getElectionManager().getCandidates();
+        if (state.getPhase() == ElectionPhase.VOTING || state.getPhase() == ElectionPhase.RESULTS) {
+            ElectionResults results = state.getResults();
             
-            if (!candidates.isEmpty()) {
+            if (!results.getCandidates().isEmpty()) {
+                sender.sendMessage(colorize("&eCelkem hlasů: &f" + state.getTotalVotes()));
                 sender.sendMessage(colorize("&6=== Kandidáti ==="));
                 
-                // Group by role
-                Map<String, List<Candidate>> byRole = new java.util.HashMap<>();
-                for (Candidate candidate : candidates) {
-                    byRole.computeIfAbsent(candidate.getRole(), k -> new ArrayList<>()).add(candidate);
-                }
-                
-                for (Map.Entry<String, List<Candidate>> entry : byRole.entrySet()) {
+                for (Map.Entry<String, List<Candidate>> entry : results.getByRole().entrySet()) {
                     sender.sendMessage(colorize("&e" + entry.getKey() + ":"));
                     for (Candidate candidate : entry.getValue()) {
                         sender.sendMessage(colorize("  &f- " + candidate.getPlayerName() + 
@@ -332,8 +397,39 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
                 }
             }
         }
+    }
+    
+    /**
+     * Region of the election an admin command works on: the given one, the one
+     * the player stands in, or the only running election. Null after telling
+     * the sender why none applies.
+     */
+    private String resolveElectionRegion(CommandSender sender, String[] args, String subCommand) {
+        if (args.length >= 2) {
+            if (plugin.getElectionManager().getElection(args[1]) == null) {
+                sender.sendMessage(colorize("&cV regionu " + args[1] + " nejsou aktivní žádné volby!"));
+                return null;
+            }
+            return args[1];
+        }
         
-        return true;
+        if (sender instanceof Player) {
+            String playerRegion = plugin.getRegionManager().getPlayerRegion((Player) sender);
+            if (playerRegion != null && plugin.getElectionManager().getElection(playerRegion) != null) {
+                return playerRegion;
+            }
+        }
+        
+        List<Election> elections = plugin.getElectionManager().getElections();
+        if (elections.isEmpty()) {
+            sender.sendMessage(colorize("&cNejsou aktivní žádné volby!"));
+            return null;
+        }
+        if (elections.size() > 1) {
+            sender.sendMessage(colorize("&cVolby probíhají ve více regionech, použijte: /volby " + subCommand + " <region>"));
+            return null;
+        }
+        return elections.get(0).getRegionId();
     }
     
     private boolean handleReputation(CommandSender sender, String[] args) {
@@ -367,7 +463,7 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
             );
             
             sender.sendMessage(colorize("&aReputace hráče " + target.getName() + " byla upravena o " + amount + " bodů!"));
-            
+        
         } catch (NumberFormatException e) {
             sender.sendMessage(colorize("&cNeplatné číslo!"));
         }
@@ -507,10 +603,10 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
                     return true;
                 }
                 return showRegionInfo(player, args[2]);
-                
+            
             case "check":
                 return checkPlayerRegion(player);
-                
+            
             default:
                 sender.sendMessage(colorize("&cNeznámá akce! Použijte: info, check"));
                 return true;
@@ -524,7 +620,7 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
         }
         
         Player player = (Player) sender;
-        String region = plugin.getRegionManager().getRegionAt(player.getLocation());
+        String region = plugin.getRegionManager().getPlayerRegion(player);
         
         if (region != null) {
             String regionName = plugin.getRegionManager().getRegion(region).getDisplayName();
@@ -563,20 +659,17 @@ public class ElectionCommands implements CommandExecutor, TabCompleter {
     }
     
     private boolean checkPlayerRegion(Player player) {
-        String region = plugin.getRegionManager().getRegionAt(player.getLocation());
+        String region = plugin.getRegionManager().getPlayerRegion(player);
         
         if (region != null) {
             var regionObj = plugin.getRegionManager().getRegion(region);
             player.sendMessage(colorize("&aJste v regionu: " + regionObj.getDisplayName() + " (" + region + ")"));
             
             // Check if there's an active election for this region
-            if (plugin.getElectionManager().isElectionActive()) {
-                String activeRegion = plugin.getElectionManager().getCurrentElection().getRegionId();
-                if (activeRegion.equals(region)) {
-                    player.sendMessage(colorize("&6V tomto regionu jsou aktivní volby!"));
-                } else {
-                    player.sendMessage(colorize("&7Volby jsou aktivní v jiném regionu."));
-                }
+            if (plugin.getElectionManager().isElectionActive(region)) {
+                player.sendMessage(colorize("&6V tomto regionu jsou aktivní volby!"));
+            } else if (plugin.getElectionManager().hasElections()) {
+                player.sendMessage(colorize("&7Volby jsou aktivní v jiném regionu."));
             } else {
                 player.sendMessage(colorize("&7Momentálně nejsou aktivní žádné volby."));
             }
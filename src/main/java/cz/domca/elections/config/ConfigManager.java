@@ -10,12 +10,14 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.util.TextTemplate;
 
 public class ConfigManager {
     
     private final WeeklyElectionsPlugin plugin;
     private final Map<String, FileConfiguration> configs;
     private final Map<String, File> configFiles;
+    private int version;
     
     public ConfigManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
@@ -32,6 +34,7 @@ public class ConfigManager {
         loadConfig("elections_requirement.yml");
         loadConfig("gui.yml");
         loadConfig("reputation_rewards.yml");
+        version++;
         
         plugin.getLogger().info("All configuration files loaded successfully!");
     }
@@ -67,9 +70,17 @@ public class ConfigManager {
         }
     }
     
+    /**
+     * Incremented on every load, lets caches built from the configs notice a reload.
+     */
+    public int getVersion() {
+        return version;
+    }
+    
     public void reloadConfigs() {
         configs.clear();
         configFiles.clear();
+        TextTemplate.clearCache();
         loadConfigs();
         plugin.getLogger().info("All configuration files reloaded!");
     }
@@ -83,6 +94,45 @@ public class ConfigManager {
         return getConfig("config.yml").getString("database.file", "elections.db");
     }
     
+    public String getDatabaseHost() {
+        return getConfig("config.yml").getString("database.host", "localhost");
+    }
+    
+    public int getDatabasePort() {
+        return getConfig("config.yml").getInt("database.port", 3306);
+    }
+    
+    public String getDatabaseName() {
+        return getConfig("config.yml").getString("database.name", "elections");
+    }
+    
+    public String getDatabaseUsername() {
+        return getConfig("config.yml").getString("database.username", "root");
+    }
+    
+    public String getDatabasePassword() {
+        return getConfig("config.yml").getString("database.password", "");
+    }
+    
+    public String getDatabaseUrl() {
+        return getConfig("config.yml").getString("database.url", "");
+    }
+    
+    public int getDatabasePoolSize() {
+        return Math.max(1, getConfig("config.yml").getInt("database.pool_size", 8));
+    }
+    
+    public int getVoteFlushInterval() {
+        return Math.max(1, getConfig("config.yml").getInt("database.vote_flush_interval", 5));
+    }
+    
+    /**
+     * Seconds between vote count updates of open menus, 0 disables them.
+     */
+    public int getLiveUpdateInterval() {
+        return Math.max(0, getConfig("config.yml").getInt("gui.live_update_interval", 2));
+    }
+    
     public int getRegistrationDuration() {
         return getConfig("config.yml").getInt("election.registration_duration", 7);
     }
@@ -0,0 +1,218 @@
+package cz.domca.elections.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+
+/**
+ * Single-threaded executor that owns all JDBC work of the plugin.
+ * Tasks run in submission order on one dedicated thread, so writes never
+ * race each other and the server tick thread never waits on the database.
+ * <p>
+ * Each task is a unit of work bound to one connection. Tasks submitted from
+ * inside a running task reuse that connection and run inline, so nested calls
+ * never wait on the pool.
+ * <p>
+ * When the pool has spare connections, read-only queries run on separate
+ * reader threads and do not queue behind writes. Their connection is not
+ * bound, database calls made from a reader task are queued like any other.
+ */
+public class DatabaseExecutor {
+    
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final ExecutorService worker;
+    private final ExecutorService readers;
+    private final Executor mainThread;
+    private final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+    
+    public DatabaseExecutor(WeeklyElectionsPlugin plugin, DatabaseManager databaseManager, int readerThreads) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WeeklyElections-Database");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.readers = readerThreads > 0 ? Executors.newFixedThreadPool(readerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "WeeklyElections-Database-Reader");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.mainThread = this::runOnMainThread;
+    }
+    
+    /**
+     * Runs the query on the database thread and completes the returned future
+     * on the server main thread, so callers can touch Bukkit API in thenAccept.
+     */
+    public <T> CompletableFuture<T> supplyAsync(SqlFunction<T> task) {
+        return completeOnMainThread(submit(task));
+    }
+    
+    /**
+     * Runs a read-only query on a reader thread when there is one, otherwise
+     * in the write queue. Completes on the main thread. A reader does not wait
+     * for writes queued before it.
+     */
+    public <T> CompletableFuture<T> readAsync(SqlFunction<T> task) {
+        if (readers == null || boundConnection.get() != null) {
+            return supplyAsync(task);
+        }
+        return completeOnMainThread(execute(readers, task, false));
+    }
+    
+    /**
+     * Runs the statement on the database thread and completes on the main thread.
+     */
+    public CompletableFuture<Void> runAsync(SqlConsumer task) {
+        return supplyAsync(conn -> {
+            task.accept(conn);
+            return null;
+        });
+    }
+    
+    /**
+     * Runs the query on the database thread and blocks until it finishes.
+     * Only meant for plugin startup and shutdown, before/after the server ticks.
+     */
+    public <T> T supplyNow(SqlFunction<T> task) {
+        return submit(task).join();
+    }
+    
+    /**
+     * Runs the query on the database thread. The returned future completes on
+     * the database thread, so dependent stages must not use Bukkit API.
+     */
+    public <T> CompletableFuture<T> submit(SqlFunction<T> task) {
+        Connection current = boundConnection.get();
+        if (current != null) {
+            // Nested call from a running unit of work, join it instead of queueing behind it
+            try {
+                return CompletableFuture.completedFuture(task.apply(current));
+            } catch (Throwable t) {
+                return CompletableFuture.failedFuture(t);
+            }
+        }
+        
+        return execute(worker, task, true);
+    }
+    
+    /**
+     * Only the write queue binds its connection, a nested write from a reader
+     * must not run inline on the reader's connection, outside the write order.
+     */
+    private <T> CompletableFuture<T> execute(ExecutorService thread, SqlFunction<T> task, boolean bindConnection) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            thread.execute(() -> {
+                try (Connection conn = databaseManager.getConnection()) {
+                    if (bindConnection) {
+                        boundConnection.set(conn);
+                    }
+                    future.complete(task.apply(conn));
+                } catch (Throwable t) {
+                    plugin.getLogger().log(Level.SEVERE, "Database task failed", t);
+                    future.completeExceptionally(t);
+                } finally {
+                    boundConnection.remove();
+                }
+            });
+        } catch (Exception e) {
+            // Executor already shut down
+            future.completeExceptionally(new CompletionException(e));
+        }
+        return future;
+    }
+    
+    /**
+     * Wraps the task so all its statements commit or roll back together.
+     * When the connection is already inside a transaction (nested unit of work)
+     * the task simply joins it and the outermost transaction decides.
+     */
+    public static <T> SqlFunction<T> transactional(SqlFunction<T> task) {
+        return conn -> {
+            if (!conn.getAutoCommit()) {
+                return task.apply(conn);
+            }
+            
+            conn.setAutoCommit(false);
+            try {
+                T result = task.apply(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        };
+    }
+    
+    private <T> CompletableFuture<T> completeOnMainThread(CompletableFuture<T> source) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        source.whenComplete((result, error) -> mainThread.execute(() -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }));
+        return future;
+    }
+    
+    public Executor mainThread() {
+        return mainThread;
+    }
+    
+    private void runOnMainThread(Runnable runnable) {
+        if (plugin.getServer().isPrimaryThread() || !plugin.isEnabled()) {
+            runnable.run();
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, runnable);
+        }
+    }
+    
+    public void shutdown() {
+        if (readers != null) {
+            readers.shutdown();
+        }
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Database tasks did not finish in time, " + worker.shutdownNow().size() + " tasks dropped");
+            }
+            // Reads still running would otherwise use connections of a pool that is being closed
+            if (readers != null && !readers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Database reads did not finish in time, " + readers.shutdownNow().size() + " tasks dropped");
+            }
+        } catch (InterruptedException e) {
+            worker.shutdownNow();
+            if (readers != null) {
+                readers.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @FunctionalInterface
+    public interface SqlFunction<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+    
+    @FunctionalInterface
+    public interface SqlConsumer {
+        void accept(Connection conn) throws SQLException;
+    }
+}
@@ -1,12 +1,11 @@
 package cz.domca.elections.database;
 
-import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
-import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
@@ -14,125 +13,46 @@ import cz.domca.elections.WeeklyElectionsPlugin;
 public class DatabaseManager {
     
     private final WeeklyElectionsPlugin plugin;
+    private StorageBackend backend;
     private HikariDataSource dataSource;
+    private DatabaseExecutor executor;
     
     public DatabaseManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
     }
     
     public void initialize() {
+        this.backend = createBackend();
         setupDataSource();
+        // One connection stays with the ordered write queue, the rest serve reads
+        this.executor = new DatabaseExecutor(plugin, this, backend.getPoolSize() - 1);
         createTables();
         migrateDatabase();
         plugin.getLogger().info("Database initialized successfully!");
     }
     
+    private StorageBackend createBackend() {
+        String type = plugin.getConfigManager().getDatabaseType().toLowerCase();
+        switch (type) {
+            case "sqlite":
+                return new SqliteBackend(plugin);
+            case "mysql":
+            case "mariadb":
+                return new MySqlBackend(plugin);
+            default:
+                plugin.getLogger().warning("Unknown database type '" + type + "', falling back to SQLite");
+                return new SqliteBackend(plugin);
+        }
+    }
+    
     private void setupDataSource() {
-        HikariConfig config = new HikariConfig();
-        
-        String databaseFile = plugin.getConfigManager().getDatabaseFile();
-        File dbFile = new File(plugin.getDataFolder(), databaseFile);
-        
-        // Configure SQLite-specific connection string with proper settings for concurrent access
-        config.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath() + 
-            "?journal_mode=WAL" +           // Write-Ahead Logging for better concurrent access
-            "&busy_timeout=30000" +          // Wait up to 30 seconds if database is locked
-            "&synchronous=NORMAL");          // Balance between safety and performance
-        
-        // Limit pool size to 1 for SQLite to avoid locking issues
-        config.setMaximumPoolSize(1);
-        config.setMinimumIdle(1);
-        config.setMaxLifetime(300000);
-        config.setConnectionTimeout(30000);  // Increased timeout
-        config.setLeakDetectionThreshold(60000);
-        
-        // Add connection test query
-        config.setConnectionTestQuery("SELECT 1");
-        
-        this.dataSource = new HikariDataSource(config);
+        this.dataSource = new HikariDataSource(backend.createPoolConfig());
+        plugin.getLogger().info("Using " + backend.getName() + " storage with " + backend.getPoolSize() + " connection(s)");
     }
     
     private void createTables() {
-        String[] createTableQueries = {
-            """
-            CREATE TABLE IF NOT EXISTS elections (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                region_id TEXT NOT NULL,
-                phase TEXT NOT NULL,
-                start_time BIGINT NOT NULL,
-                end_time BIGINT,
-                created_at BIGINT DEFAULT (strftime('%s', 'now'))
-            )
-            """,
-            
-            """
-            CREATE TABLE IF NOT EXISTS candidates (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                election_id INTEGER NOT NULL,
-                player_uuid TEXT NOT NULL,
-                player_name TEXT NOT NULL,
-                role TEXT NOT NULL,
-                slogan TEXT,
-                votes INTEGER DEFAULT 0,
-                created_at BIGINT DEFAULT (strftime('%s', 'now')),
-                FOREIGN KEY (election_id) REFERENCES elections(id),
-                UNIQUE(election_id, player_uuid)
-            )
-            """,
-            
-            """
-            CREATE TABLE IF NOT EXISTS votes (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                election_id INTEGER NOT NULL,
-                voter_uuid TEXT NOT NULL,
-                candidate_id INTEGER NOT NULL,
-                voted_at BIGINT DEFAULT (strftime('%s', 'now')),
-                FOREIGN KEY (election_id) REFERENCES elections(id),
-                FOREIGN KEY (candidate_id) REFERENCES candidates(id),
-                UNIQUE(election_id, voter_uuid)
-            )
-            """,
-            
-            """
-            CREATE TABLE IF NOT EXISTS role_holders (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                player_uuid TEXT NOT NULL,
-                player_name TEXT NOT NULL,
-                region_id TEXT NOT NULL,
-                role TEXT NOT NULL,
-                start_time BIGINT NOT NULL,
-                end_time BIGINT NOT NULL,
-                active BOOLEAN DEFAULT TRUE,
-                notified BOOLEAN DEFAULT FALSE
-            )
-            """,
-            
-            """
-            CREATE TABLE IF NOT EXISTS reputation (
-                player_uuid TEXT PRIMARY KEY,
-                player_name TEXT NOT NULL,
-                reputation INTEGER DEFAULT 0,
-                last_updated BIGINT DEFAULT (strftime('%s', 'now'))
-            )
-            """,
-            
-            """
-            CREATE TABLE IF NOT EXISTS npc_locations (
-                region_id TEXT PRIMARY KEY,
-                world TEXT NOT NULL,
-                x DOUBLE NOT NULL,
-                y DOUBLE NOT NULL,
-                z DOUBLE NOT NULL,
-                yaw FLOAT NOT NULL,
-                pitch FLOAT NOT NULL,
-                npc_id INTEGER,
-                created_at BIGINT DEFAULT (strftime('%s', 'now'))
-            )
-            """
-        };
-        
         try (Connection conn = getConnection()) {
-            for (String query : createTableQueries) {
+            for (String query : backend.getCreateTableStatements()) {
                 try (PreparedStatement stmt = conn.prepareStatement(query)) {
                     stmt.executeUpdate();
                 }
@@ -144,21 +64,9 @@ public class DatabaseManager {
     
     private void migrateDatabase() {
         try (Connection conn = getConnection()) {
-            // Add notified column to role_holders if it doesn't exist
-            try (PreparedStatement stmt = conn.prepareStatement(
-                "SELECT notified FROM role_holders LIMIT 1")) {
-                stmt.executeQuery();
-                // Column exists, no migration needed
-            } catch (SQLException e) {
-                // Column doesn't exist, add it
-                try (PreparedStatement stmt = conn.prepareStatement(
-                    "ALTER TABLE role_holders ADD COLUMN notified BOOLEAN DEFAULT FALSE")) {
-                    stmt.executeUpdate();
-                    plugin.getLogger().info("Added 'notified' column to role_holders table");
-                }
-            }
+            new SchemaMigrator(plugin.getLogger(), backend).migrate(conn);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to migrate database", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to migrate database", e);
         }
     }
     
@@ -166,7 +74,62 @@ public class DatabaseManager {
         return dataSource.getConnection();
     }
     
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+    
+    /**
+     * Engine-specific SQL for the few statements that are not portable.
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+    
+    /**
+     * Run a query off the main thread, result is delivered back on the main thread
+     */
+    public <T> CompletableFuture<T> supplyAsync(DatabaseExecutor.SqlFunction<T> task) {
+        return executor.supplyAsync(task);
+    }
+    
+    /**
+     * Run a read-only query off the main thread, result is delivered back on the main thread.
+     * With a server database it runs next to the write queue and may not see writes
+     * that are still queued, use supplyAsync when the query must follow them.
+     */
+    public <T> CompletableFuture<T> readAsync(DatabaseExecutor.SqlFunction<T> task) {
+        return executor.readAsync(task);
+    }
+    
+    /**
+     * Run a statement off the main thread, completion is delivered back on the main thread
+     */
+    public CompletableFuture<Void> runAsync(DatabaseExecutor.SqlConsumer task) {
+        return executor.runAsync(task);
+    }
+    
+    /**
+     * Run a multi-step operation as one transaction off the main thread, result is
+     * delivered back on the main thread. Nested database calls made by the task
+     * reuse its connection and take part in the same transaction.
+     */
+    public <T> CompletableFuture<T> inTransaction(DatabaseExecutor.SqlFunction<T> task) {
+        return executor.supplyAsync(DatabaseExecutor.transactional(task));
+    }
+    
+    /**
+     * Run a query on the database thread and wait for it (startup only)
+     */
+    public <T> T supplyNow(DatabaseExecutor.SqlFunction<T> task) {
+        return executor.supplyNow(task);
+    }
+    
     public void shutdown() {
+        // Let queued writes finish before the pool goes away
+        if (executor != null) {
+            executor.shutdown();
+        }
+        
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             plugin.getLogger().info("Database connection pool closed");
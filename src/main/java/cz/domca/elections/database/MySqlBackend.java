@@ -0,0 +1,202 @@
+package cz.domca.elections.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.config.ConfigManager;
+
+/**
+ * MySQL or MariaDB server, lets several servers of a network share one election.
+ * Connects through the MariaDB driver shaded into the plugin, which speaks to
+ * both servers. Setting database.url allows any MySQL-compatible JDBC URL whose
+ * driver is on the classpath, e.g. an embedded H2 in MySQL mode for local testing.
+ * Timestamps are written by the queries, the tables use no expression defaults
+ * so older MySQL versions accept them.
+ */
+class MySqlBackend implements StorageBackend {
+    
+    private static final String MARIADB_DRIVER = "org.mariadb.jdbc.Driver";
+    
+    // Analyzed one at a time, not every MySQL-compatible engine takes a table list
+    private static final List<String> TABLES = List.of(
+        "elections", "candidates", "votes", "role_holders", "reputation", "npc_locations");
+    
+    private final WeeklyElectionsPlugin plugin;
+    
+    MySqlBackend(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+    
+    @Override
+    public HikariConfig createPoolConfig() {
+        ConfigManager configManager = plugin.getConfigManager();
+        HikariConfig config = new HikariConfig();
+        
+        String url = configManager.getDatabaseUrl();
+        if (url.isEmpty()) {
+            url = "jdbc:mariadb://" + configManager.getDatabaseHost() + ":" + configManager.getDatabasePort()
+                + "/" + configManager.getDatabaseName();
+        }
+        config.setJdbcUrl(url);
+        // The shaded driver is invisible to DriverManager, other URLs are resolved through it
+        if (url.startsWith("jdbc:mariadb:")) {
+            config.setDriverClassName(MARIADB_DRIVER);
+        }
+        config.setUsername(configManager.getDatabaseUsername());
+        config.setPassword(configManager.getDatabasePassword());
+        config.setPoolName("WeeklyElections");
+        
+        config.setMaximumPoolSize(getPoolSize());
+        config.setMinimumIdle(Math.min(2, getPoolSize()));
+        config.setMaxLifetime(1800000);
+        config.setConnectionTimeout(30000);
+        config.setLeakDetectionThreshold(60000);
+        
+        // Statement cache and batch rewriting for the vote and reward batches
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return config;
+    }
+    
+    @Override
+    public int getPoolSize() {
+        return plugin.getConfigManager().getDatabasePoolSize();
+    }
+    
+    @Override
+    public List<String> getCreateTableStatements() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS elections (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                region_id VARCHAR(64) NOT NULL,
+                phase VARCHAR(16) NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT,
+                created_at BIGINT
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS candidates (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                election_id INT NOT NULL,
+                player_uuid VARCHAR(36) NOT NULL,
+                player_name VARCHAR(32) NOT NULL,
+                role VARCHAR(64) NOT NULL,
+                slogan TEXT,
+                votes INT DEFAULT 0,
+                created_at BIGINT,
+                FOREIGN KEY (election_id) REFERENCES elections(id),
+                UNIQUE(election_id, player_uuid)
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS votes (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                election_id INT NOT NULL,
+                voter_uuid VARCHAR(36) NOT NULL,
+                candidate_id INT NOT NULL,
+                voted_at BIGINT,
+                FOREIGN KEY (election_id) REFERENCES elections(id),
+                FOREIGN KEY (candidate_id) REFERENCES candidates(id),
+                UNIQUE(election_id, voter_uuid)
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS role_holders (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                player_uuid VARCHAR(36) NOT NULL,
+                player_name VARCHAR(32) NOT NULL,
+                region_id VARCHAR(64) NOT NULL,
+                role VARCHAR(64) NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT NOT NULL,
+                active BOOLEAN DEFAULT TRUE,
+                notified BOOLEAN DEFAULT FALSE
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS reputation (
+                player_uuid VARCHAR(36) PRIMARY KEY,
+                player_name VARCHAR(32) NOT NULL,
+                reputation INT DEFAULT 0,
+                last_updated BIGINT
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS npc_locations (
+                region_id VARCHAR(64) PRIMARY KEY,
+                world VARCHAR(64) NOT NULL,
+                x DOUBLE NOT NULL,
+                y DOUBLE NOT NULL,
+                z DOUBLE NOT NULL,
+                yaw FLOAT NOT NULL,
+                pitch FLOAT NOT NULL,
+                npc_id INT,
+                created_at BIGINT
+            )
+            """
+        );
+    }
+    
+    @Override
+    public List<String> getAnalyzeStatements() {
+        List<String> statements = new ArrayList<>();
+        for (String table : TABLES) {
+            statements.add("ANALYZE TABLE " + table);
+        }
+        return statements;
+    }
+    
+    @Override
+    public String insertIgnore() {
+        return "INSERT IGNORE INTO";
+    }
+    
+    @Override
+    public String insertOrReplace() {
+        return "REPLACE INTO";
+    }
+    
+    @Override
+    public String upsert(String keyColumn, String assignments) {
+        // The key is implied by the table's primary or unique key
+        return "ON DUPLICATE KEY UPDATE " + assignments;
+    }
+    
+    @Override
+    public String excluded(String column) {
+        return "VALUES(" + column + ")";
+    }
+    
+    @Override
+    public String createTempTable() {
+        return "CREATE TEMPORARY TABLE IF NOT EXISTS";
+    }
+    
+    @Override
+    public String concat(String... expressions) {
+        return "CONCAT(" + String.join(", ", expressions) + ")";
+    }
+    
+    @Override
+    public String currentTime() {
+        return "UNIX_TIMESTAMP()";
+    }
+}
@@ -0,0 +1,191 @@
+package cz.domca.elections.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings the schema created by createTables up to date.
+ * Applied versions are recorded in the schema_version table, every step runs
+ * once and in its own transaction. New steps are only ever appended.
+ */
+class SchemaMigrator {
+    
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Add notified column to role_holders", conn -> {
+            // Databases created before the column existed
+            if (!hasColumn(conn, "role_holders", "notified")) {
+                execute(conn, "ALTER TABLE role_holders ADD COLUMN notified BOOLEAN DEFAULT FALSE");
+            }
+        }),
+        
+        new Migration(2, "Add indexes for election, vote and role lookups", conn -> {
+            // Current election lookup, newest first
+            createIndex(conn, "idx_elections_start", "elections", "start_time");
+            // Roster load and winner selection per election
+            createIndex(conn, "idx_candidates_election_votes", "candidates", "election_id, votes");
+            // Vote count recomputation per candidate
+            createIndex(conn, "idx_votes_candidate", "votes", "candidate_id");
+            // Loading and expiring active mandates
+            createIndex(conn, "idx_role_holders_active_end", "role_holders", "active, end_time");
+            // Join notifications and active role checks of one player
+            createIndex(conn, "idx_role_holders_player", "role_holders", "player_uuid, active, notified, end_time");
+        }),
+        
+        new Migration(3, "Add head texture cache", conn -> {
+            execute(conn, """
+                CREATE TABLE IF NOT EXISTS head_textures (
+                    player_uuid VARCHAR(36) PRIMARY KEY,
+                    player_name VARCHAR(32),
+                    texture_value TEXT NOT NULL,
+                    texture_signature TEXT,
+                    updated_at BIGINT NOT NULL
+                )
+                """);
+        }),
+        
+        new Migration(4, "Add results transition checkpoints", conn -> {
+            execute(conn, """
+                CREATE TABLE IF NOT EXISTS transition_stages (
+                    election_id INTEGER NOT NULL,
+                    stage VARCHAR(32) NOT NULL,
+                    completed_at BIGINT NOT NULL,
+                    PRIMARY KEY (election_id, stage)
+                )
+                """);
+            execute(conn, """
+                CREATE TABLE IF NOT EXISTS election_winners (
+                    election_id INTEGER NOT NULL,
+                    role VARCHAR(64) NOT NULL,
+                    candidate_id INTEGER NOT NULL,
+                    player_uuid VARCHAR(36) NOT NULL,
+                    player_name VARCHAR(32) NOT NULL,
+                    votes INTEGER NOT NULL,
+                    tied BOOLEAN DEFAULT FALSE,
+                    PRIMARY KEY (election_id, role)
+                )
+                """);
+            
+            // Lets an interrupted role assignment skip the winners it already recorded
+            if (!hasColumn(conn, "role_holders", "election_id")) {
+                execute(conn, "ALTER TABLE role_holders ADD COLUMN election_id INTEGER");
+            }
+            createIndex(conn, "idx_role_holders_election", "role_holders", "election_id");
+            
+            // Elections already in the results phase got their rewards and roles without checkpoints
+            String query = "INSERT INTO transition_stages (election_id, stage, completed_at) SELECT id, ?, ? FROM elections WHERE phase = 'RESULTS'";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                for (String stage : List.of("RESULTS", "REWARDS", "ROLES", "ANNOUNCE")) {
+                    stmt.setString(1, stage);
+                    stmt.setLong(2, Instant.now().getEpochSecond());
+                    stmt.executeUpdate();
+                }
+            }
+        })
+    );
+    
+    private final Logger logger;
+    private final StorageBackend backend;
+    
+    SchemaMigrator(Logger logger, StorageBackend backend) {
+        this.logger = logger;
+        this.backend = backend;
+    }
+    
+    void migrate(Connection conn) throws SQLException {
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INTEGER PRIMARY KEY,
+                description TEXT NOT NULL,
+                applied_at BIGINT NOT NULL
+            )
+            """);
+        
+        int current = currentVersion(conn);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            
+            DatabaseExecutor.transactional(c -> {
+                migration.step.accept(c);
+                recordVersion(c, migration);
+                return null;
+            }).apply(conn);
+            logger.info("Applied database migration " + migration.version + ": " + migration.description);
+        }
+        
+        // Refresh planner statistics, row counts grow with every election
+        try {
+            for (String statement : backend.getAnalyzeStatements()) {
+                execute(conn, statement);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to analyze database", e);
+        }
+    }
+    
+    private int currentVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(version) FROM schema_version")) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        String query = "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setLong(3, Instant.now().getEpochSecond());
+            stmt.executeUpdate();
+        }
+    }
+    
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, null)) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    // Not every engine supports CREATE INDEX IF NOT EXISTS, so ask the driver first
+    private static void createIndex(Connection conn, String name, String table, String columns) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (name.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+    }
+    
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+    
+    private static class Migration {
+        final int version;
+        final String description;
+        final DatabaseExecutor.SqlConsumer step;
+        
+        Migration(int version, String description, DatabaseExecutor.SqlConsumer step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+}
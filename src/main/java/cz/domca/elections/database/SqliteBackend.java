@@ -0,0 +1,178 @@
+package cz.domca.elections.database;
+
+import java.io.File;
+import java.util.List;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+
+/**
+ * Single-file SQLite database, the default backend.
+ * SQLite allows one writer at a time, so the pool holds a single connection
+ * and every query goes through the ordered database thread.
+ */
+class SqliteBackend implements StorageBackend {
+    
+    private final WeeklyElectionsPlugin plugin;
+    
+    SqliteBackend(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public String getName() {
+        return "SQLite";
+    }
+    
+    @Override
+    public HikariConfig createPoolConfig() {
+        HikariConfig config = new HikariConfig();
+        
+        String databaseFile = plugin.getConfigManager().getDatabaseFile();
+        File dbFile = new File(plugin.getDataFolder(), databaseFile);
+        
+        // Configure SQLite-specific connection string with proper settings for concurrent access
+        config.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath() +
+            "?journal_mode=WAL" +           // Write-Ahead Logging for better concurrent access
+            "&busy_timeout=30000" +          // Wait up to 30 seconds if database is locked
+            "&synchronous=NORMAL");          // Balance between safety and performance
+        
+        // Limit pool size to 1 for SQLite to avoid locking issues
+        config.setMaximumPoolSize(getPoolSize());
+        config.setMinimumIdle(1);
+        config.setMaxLifetime(300000);
+        config.setConnectionTimeout(30000);  // Increased timeout
+        config.setLeakDetectionThreshold(60000);
+        
+        // Add connection test query
+        config.setConnectionTestQuery("SELECT 1");
+        return config;
+    }
+    
+    @Override
+    public int getPoolSize() {
+        return 1;
+    }
+    
+    @Override
+    public List<String> getCreateTableStatements() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS elections (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                region_id TEXT NOT NULL,
+                phase TEXT NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT,
+                created_at BIGINT DEFAULT (strftime('%s', 'now'))
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS candidates (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                election_id INTEGER NOT NULL,
+                player_uuid TEXT NOT NULL,
+                player_name TEXT NOT NULL,
+                role TEXT NOT NULL,
+                slogan TEXT,
+                votes INTEGER DEFAULT 0,
+                created_at BIGINT DEFAULT (strftime('%s', 'now')),
+                FOREIGN KEY (election_id) REFERENCES elections(id),
+                UNIQUE(election_id, player_uuid)
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS votes (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                election_id INTEGER NOT NULL,
+                voter_uuid TEXT NOT NULL,
+                candidate_id INTEGER NOT NULL,
+                voted_at BIGINT DEFAULT (strftime('%s', 'now')),
+                FOREIGN KEY (election_id) REFERENCES elections(id),
+                FOREIGN KEY (candidate_id) REFERENCES candidates(id),
+                UNIQUE(election_id, voter_uuid)
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS role_holders (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                player_uuid TEXT NOT NULL,
+                player_name TEXT NOT NULL,
+                region_id TEXT NOT NULL,
+                role TEXT NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT NOT NULL,
+                active BOOLEAN DEFAULT TRUE,
+                notified BOOLEAN DEFAULT FALSE
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS reputation (
+                player_uuid TEXT PRIMARY KEY,
+                player_name TEXT NOT NULL,
+                reputation INTEGER DEFAULT 0,
+                last_updated BIGINT DEFAULT (strftime('%s', 'now'))
+            )
+            """,
+            
+            """
+            CREATE TABLE IF NOT EXISTS npc_locations (
+                region_id TEXT PRIMARY KEY,
+                world TEXT NOT NULL,
+                x DOUBLE NOT NULL,
+                y DOUBLE NOT NULL,
+                z DOUBLE NOT NULL,
+                yaw FLOAT NOT NULL,
+                pitch FLOAT NOT NULL,
+                npc_id INTEGER,
+                created_at BIGINT DEFAULT (strftime('%s', 'now'))
+            )
+            """
+        );
+    }
+    
+    @Override
+    public List<String> getAnalyzeStatements() {
+        return List.of("ANALYZE");
+    }
+    
+    @Override
+    public String insertIgnore() {
+        return "INSERT OR IGNORE INTO";
+    }
+    
+    @Override
+    public String insertOrReplace() {
+        return "INSERT OR REPLACE INTO";
+    }
+    
+    @Override
+    public String upsert(String keyColumn, String assignments) {
+        return "ON CONFLICT(" + keyColumn + ") DO UPDATE SET " + assignments;
+    }
+    
+    @Override
+    public String excluded(String column) {
+        return "excluded." + column;
+    }
+    
+    @Override
+    public String createTempTable() {
+        return "CREATE TEMP TABLE IF NOT EXISTS";
+    }
+    
+    @Override
+    public String concat(String... expressions) {
+        return String.join(" || ", expressions);
+    }
+    
+    @Override
+    public String currentTime() {
+        return "strftime('%s', 'now')";
+    }
+}
@@ -0,0 +1,67 @@
+package cz.domca.elections.database;
+
+import java.util.List;
+
+import com.zaxxer.hikari.HikariConfig;
+
+/**
+ * A database engine the plugin can store its data in.
+ * The backend owns the connection pool settings, the table definitions and
+ * every piece of SQL whose syntax differs between engines, all other queries
+ * are written in the common subset and shared.
+ */
+public interface StorageBackend {
+    
+    String getName();
+    
+    /**
+     * Pool settings including the JDBC URL and credentials.
+     */
+    HikariConfig createPoolConfig();
+    
+    /**
+     * Number of connections the backend can use at once. With more than one,
+     * read-only queries run next to the ordered write queue.
+     */
+    int getPoolSize();
+    
+    List<String> getCreateTableStatements();
+    
+    /**
+     * Statements refreshing the query planner statistics.
+     */
+    List<String> getAnalyzeStatements();
+    
+    /**
+     * Start of an insert that silently skips rows violating a unique key.
+     */
+    String insertIgnore();
+    
+    /**
+     * Start of an insert that replaces the row with the same unique key.
+     */
+    String insertOrReplace();
+    
+    /**
+     * Clause turning the preceding insert into an upsert on the given key.
+     * Assignments may refer to the inserted values through {@link #excluded(String)}.
+     */
+    String upsert(String keyColumn, String assignments);
+    
+    /**
+     * Value the conflicting insert tried to write into the column.
+     */
+    String excluded(String column);
+    
+    /**
+     * Start of a create statement for a connection-private table.
+     */
+    String createTempTable();
+    
+    String concat(String... expressions);
+    
+    /**
+     * Current time in epoch seconds.
+     */
+    String currentTime();
+}
@@ -0,0 +1,113 @@
+package cz.domca.elections.elections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import cz.domca.elections.util.UuidHashSet;
+
+/**
+ * Immutable snapshot of the candidates of one election, sorted by votes.
+ * Every registration or vote produces a new roster with a higher version,
+ * so readers can hold on to a snapshot and cheaply tell whether it is stale.
+ */
+public final class CandidateRoster {
+    
+    private static final Comparator<Candidate> BY_VOTES = Comparator.comparingInt(Candidate::getVotes).reversed()
+        .thenComparing(Candidate::getPlayerName);
+    
+    private final int electionId;
+    private final long version;
+    private final List<Candidate> candidates;
+    private final Map<Integer, Candidate> byId;
+    private final Map<String, Candidate> byName;
+    private final UuidHashSet registered;
+    
+    private CandidateRoster(int electionId, long version, List<Candidate> candidates) {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        sorted.sort(BY_VOTES);
+        
+        Map<Integer, Candidate> byId = new HashMap<>();
+        Map<String, Candidate> byName = new HashMap<>();
+        UuidHashSet registered = new UuidHashSet(sorted.size());
+        for (Candidate candidate : sorted) {
+            byId.put(candidate.getId(), candidate);
+            byName.put(candidate.getPlayerName(), candidate);
+            registered.add(UUID.fromString(candidate.getPlayerUuid()));
+        }
+        
+        this.electionId = electionId;
+        this.version = version;
+        this.candidates = Collections.unmodifiableList(sorted);
+        this.byId = byId;
+        this.byName = byName;
+        this.registered = registered;
+    }
+    
+    public static CandidateRoster empty(int electionId) {
+        return new CandidateRoster(electionId, 0, Collections.emptyList());
+    }
+    
+    public static CandidateRoster of(int electionId, List<Candidate> candidates) {
+        return new CandidateRoster(electionId, 0, candidates);
+    }
+    
+    public CandidateRoster withCandidate(Candidate candidate) {
+        List<Candidate> updated = new ArrayList<>(candidates);
+        updated.add(candidate);
+        return new CandidateRoster(electionId, version + 1, updated);
+    }
+    
+    public CandidateRoster withVote(int candidateId) {
+        List<Candidate> updated = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            if (candidate.getId() == candidateId) {
+                candidate = new Candidate(
+                    candidate.getId(),
+                    candidate.getPlayerUuid(),
+                    candidate.getPlayerName(),
+                    candidate.getRole(),
+                    candidate.getSlogan(),
+                    candidate.getVotes() + 1
+                );
+            }
+            updated.add(candidate);
+        }
+        return new CandidateRoster(electionId, version + 1, updated);
+    }
+    
+    public int getElectionId() {
+        return electionId;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Candidates ordered by votes descending, then by name. The list is unmodifiable.
+     */
+    public List<Candidate> getCandidates() {
+        return candidates;
+    }
+    
+    public Candidate getById(int candidateId) {
+        return byId.get(candidateId);
+    }
+    
+    public Candidate getByName(String playerName) {
+        return byName.get(playerName);
+    }
+    
+    public boolean contains(UUID player) {
+        return registered.contains(player);
+    }
+    
+    public int size() {
+        return candidates.size();
+    }
+}
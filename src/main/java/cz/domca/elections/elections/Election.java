@@ -2,12 +2,15 @@ package cz.domca.elections.elections;
 
 import java.time.Instant;
 
-public class Election {
+/**
+ * Immutable election record, a phase change produces a new instance.
+ */
+public final class Election {
     private final int id;
     private final String regionId;
-    private ElectionPhase phase;
+    private final ElectionPhase phase;
     private final Instant startTime;
-    private Instant endTime;
+    private final Instant endTime;
     
     public Election(int id, String regionId, ElectionPhase phase, Instant startTime, Instant endTime) {
         this.id = id;
@@ -29,17 +32,8 @@ public class Election {
         return phase;
     }
     
-    public void setPhase(String phaseName) {
-        try {
-            this.phase = ElectionPhase.valueOf(phaseName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            // Default to REGISTRATION if invalid phase
-            this.phase = ElectionPhase.REGISTRATION;
-        }
-    }
-    
-    public void setPhase(ElectionPhase phase) {
-        this.phase = phase;
+    public Election withPhase(ElectionPhase phase) {
+        return new Election(id, regionId, phase, startTime, endTime);
     }
     
     public Instant getStartTime() {
@@ -50,10 +44,6 @@ public class Election {
         return endTime;
     }
     
-    public void setEndTime(Instant endTime) {
-        this.endTime = endTime;
-    }
-    
     public boolean isEnded() {
         return endTime != null && Instant.now().isAfter(endTime);
     }
@@ -1,294 +1,465 @@
 package cz.domca.elections.elections;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 import org.bukkit.configuration.ConfigurationSection;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
 
+/**
+ * Registry of the running elections, at most one per region. Every region
+ * runs its own election with its own phase, candidates and voters, so all
+ * regions can vote at the same time. The elections are published as immutable
+ * {@link ElectionState} snapshots, so they can be read from any thread without
+ * locks. Changes are made on the main thread.
+ */
 public class ElectionManager {
     
     private final WeeklyElectionsPlugin plugin;
-    private Election currentElection;
+    private final VoteLedger voteLedger;
+    // States of the running elections by region id, in the order they were started; replaced as a whole
+    private final AtomicReference<Map<String, ElectionState>> states = new AtomicReference<>(Collections.emptyMap());
     
     public ElectionManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
+        this.voteLedger = new VoteLedger(plugin);
     }
     
     public void initialize() {
-        loadCurrentElection();
+        List<Election> loaded = loadElections();
+        if (plugin.getDatabaseManager() != null) {
+            voteLedger.initialize(loaded);
+            Map<String, ElectionState> initial = new LinkedHashMap<>();
+            for (Election election : loaded) {
+                CandidateRoster roster = loadRoster(election);
+                // Votes the journal replay could not write yet
+                for (int candidateId : voteLedger.getRecoveredVotes(election.getId())) {
+                    roster = roster.withVote(candidateId);
+                }
+                initial.put(election.getRegionId(), ElectionState.of(election, roster));
+            }
+            states.set(Collections.unmodifiableMap(initial));
+        }
+    }
+    
+    public void shutdown() {
+        voteLedger.shutdown();
+    }
+    
+    /**
+     * Write votes accepted since the last flush to the database.
+     */
+    public void flushVotes() {
+        voteLedger.flush();
     }
     
-    private void loadCurrentElection() {
+    private List<Election> loadElections() {
         if (plugin.getDatabaseManager() == null) {
             plugin.getLogger().warning("Database manager not initialized yet, skipping election loading");
-            return;
+            return Collections.emptyList();
         }
         
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "SELECT * FROM elections WHERE end_time IS NULL OR end_time > ? ORDER BY start_time DESC LIMIT 1";
+        // Runs during plugin enable, before the server starts ticking
+        List<Election> loaded = plugin.getDatabaseManager().supplyNow(conn -> {
+            List<Election> active = new ArrayList<>();
+            String query = "SELECT * FROM elections WHERE end_time IS NULL OR end_time > ? ORDER BY start_time DESC";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 stmt.setLong(1, Instant.now().getEpochSecond());
                 ResultSet rs = stmt.executeQuery();
                 
-                if (rs.next()) {
-                    currentElection = new Election(
+                while (rs.next()) {
+                    active.add(new Election(
                         rs.getInt("id"),
                         rs.getString("region_id"),
                         ElectionPhase.valueOf(rs.getString("phase")),
                         Instant.ofEpochSecond(rs.getLong("start_time")),
                         rs.getLong("end_time") > 0 ? Instant.ofEpochSecond(rs.getLong("end_time")) : null
-                    );
+                    ));
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load current elections", e);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load current election", e);
+            return active;
+        });
+        
+        Map<String, Election> byRegion = new LinkedHashMap<>();
+        for (Election election : loaded) {
+            // Newest first, an older unfinished election of the same region is left alone
+            byRegion.putIfAbsent(election.getRegionId(), election);
         }
+        return new ArrayList<>(byRegion.values());
     }
     
-    public Election getCurrentElection() {
-        return currentElection;
+    private CandidateRoster loadRoster(Election election) {
+        // Loaded after the vote journal replay, so the stored vote counts are complete
+        int electionId = election.getId();
+        List<Candidate> candidates = plugin.getDatabaseManager().supplyNow(conn -> {
+            List<Candidate> loaded = new ArrayList<>();
+            String query = "SELECT * FROM candidates WHERE election_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, electionId);
+                ResultSet rs = stmt.executeQuery();
+                
+                while (rs.next()) {
+                    loaded.add(new Candidate(
+                        rs.getInt("id"),
+                        rs.getString("player_uuid"),
+                        rs.getString("player_name"),
+                        rs.getString("role"),
+                        rs.getString("slogan"),
+                        rs.getInt("votes")
+                    ));
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load candidates", e);
+            }
+            return loaded;
+        });
+        return CandidateRoster.of(electionId, candidates);
     }
     
-    public boolean isElectionActive() {
-        return currentElection != null && !currentElection.isEnded();
+    /**
+     * Current state of the region's election, or null if the region does not vote.
+     * Safe to call from any thread.
+     */
+    public ElectionState getState(String regionId) {
+        return states.get().get(regionId);
     }
     
-    public boolean canRegister() {
-        return isElectionActive() && currentElection.getPhase() == ElectionPhase.REGISTRATION;
+    /**
+     * States of all running elections, in the order they were started. The list
+     * is one consistent snapshot and does not change afterwards.
+     */
+    public List<ElectionState> getStates() {
+        return new ArrayList<>(states.get().values());
     }
     
-    public boolean canVote() {
-        return isElectionActive() && currentElection.getPhase() == ElectionPhase.VOTING;
+    /**
+     * Running election of the region, or null if the region does not vote.
+     */
+    public Election getElection(String regionId) {
+        ElectionState state = getState(regionId);
+        return state != null ? state.getElection() : null;
     }
     
-    public boolean registerCandidate(String playerUuid, String playerName, String role, String slogan) {
-        if (!canRegister()) {
-            return false;
+    /**
+     * All running elections, in the order they were started.
+     */
+    public List<Election> getElections() {
+        List<Election> running = new ArrayList<>();
+        for (ElectionState state : states.get().values()) {
+            running.add(state.getElection());
+        }
+        return running;
+    }
+    
+    public boolean hasElections() {
+        return !states.get().isEmpty();
+    }
+    
+    public boolean isElectionActive(String regionId) {
+        Election election = getElection(regionId);
+        return election != null && !election.isEnded();
+    }
+    
+    public boolean canRegister(String regionId) {
+        return isInPhase(regionId, ElectionPhase.REGISTRATION);
+    }
+    
+    public boolean canVote(String regionId) {
+        return isInPhase(regionId, ElectionPhase.VOTING);
+    }
+    
+    // One read of the state, the phase cannot change between the checks
+    private boolean isInPhase(String regionId, ElectionPhase phase) {
+        Election election = getElection(regionId);
+        return election != null && !election.isEnded() && election.getPhase() == phase;
+    }
+    
+    public CompletableFuture<Boolean> registerCandidate(String regionId, String playerUuid, String playerName, String role, String slogan) {
+        if (!canRegister(regionId)) {
+            return CompletableFuture.completedFuture(false);
         }
         
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "INSERT INTO candidates (election_id, player_uuid, player_name, role, slogan) VALUES (?, ?, ?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentElection.getId());
+        int electionId = getElection(regionId).getId();
+        return plugin.getDatabaseManager().supplyAsync(conn -> {
+            String query = "INSERT INTO candidates (election_id, player_uuid, player_name, role, slogan, created_at) VALUES (?, ?, ?, ?, ?, "
+                + plugin.getDatabaseManager().getBackend().currentTime() + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, electionId);
                 stmt.setString(2, playerUuid);
                 stmt.setString(3, playerName);
                 stmt.setString(4, role);
                 stmt.setString(5, slogan);
                 stmt.executeUpdate();
-                return true;
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to register candidate", e);
-            return false;
-        }
-    }
-    
-    public boolean castVote(String voterUuid, int candidateId) {
-        if (!canVote()) {
-            return false;
-        }
-        
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            conn.setAutoCommit(false);
-            
-            // Insert vote
-            String insertVote = "INSERT INTO votes (election_id, voter_uuid, candidate_id) VALUES (?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(insertVote)) {
-                stmt.setInt(1, currentElection.getId());
-                stmt.setString(2, voterUuid);
-                stmt.setInt(3, candidateId);
-                stmt.executeUpdate();
+                
+                ResultSet rs = stmt.getGeneratedKeys();
+                return rs.next() ? rs.getInt(1) : -1;
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to register candidate", e);
+                return -1;
             }
-            
-            // Update candidate vote count
-            String updateCount = "UPDATE candidates SET votes = votes + 1 WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(updateCount)) {
-                stmt.setInt(1, candidateId);
-                stmt.executeUpdate();
+        }).thenApply(candidateId -> {
+            if (candidateId < 0) {
+                return false;
             }
             
-            conn.commit();
+            Candidate candidate = new Candidate(candidateId, playerUuid, playerName, role, slogan, 0);
+            update(regionId, state -> state.getElectionId() == electionId ? state.withCandidate(candidate) : state);
+            // Resolve the head before anyone opens the voting menu
+            plugin.getGuiManager().getSkullProfiles().prefetch(UUID.fromString(playerUuid), playerName);
             return true;
-            
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to cast vote", e);
-            return false;
-        }
+        });
     }
     
-    public List<Candidate> getCandidates() {
-        if (currentElection == null) {
-            return new ArrayList<>();
+    /**
+     * Accepts the vote in memory right away. The vote is journaled to disk and
+     * written to the database by the next periodic flush.
+     */
+    public boolean castVote(String regionId, UUID voter, int candidateId) {
+        ElectionState state = getState(regionId);
+        if (!canVote(regionId) || state.getRoster().getById(candidateId) == null) {
+            return false;
         }
         
-        List<Candidate> candidates = new ArrayList<>();
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "SELECT * FROM candidates WHERE election_id = ? ORDER BY votes DESC, player_name ASC";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentElection.getId());
-                ResultSet rs = stmt.executeQuery();
-                
-                while (rs.next()) {
-                    candidates.add(new Candidate(
-                        rs.getInt("id"),
-                        rs.getString("player_uuid"),
-                        rs.getString("player_name"),
-                        rs.getString("role"),
-                        rs.getString("slogan"),
-                        rs.getInt("votes")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load candidates", e);
+        int electionId = state.getElectionId();
+        if (!voteLedger.castVote(electionId, voter, candidateId)) {
+            return false;
         }
         
-        return candidates;
+        update(regionId, current -> current.getElectionId() == electionId ? current.withVote(candidateId) : current);
+        return true;
     }
     
-    public boolean hasVoted(String playerUuid) {
-        if (currentElection == null) {
-            return false;
-        }
-        
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "SELECT COUNT(*) FROM votes WHERE election_id = ? AND voter_uuid = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentElection.getId());
-                stmt.setString(2, playerUuid);
-                ResultSet rs = stmt.executeQuery();
-                return rs.next() && rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check vote status", e);
-            return false;
-        }
+    /**
+     * Snapshot of the candidates of the region's election, or null if the region does not vote.
+     */
+    public CandidateRoster getRoster(String regionId) {
+        ElectionState state = getState(regionId);
+        return state != null ? state.getRoster() : null;
     }
     
-    public boolean isRegistered(String playerUuid) {
-        if (currentElection == null) {
-            return false;
-        }
-        
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "SELECT COUNT(*) FROM candidates WHERE election_id = ? AND player_uuid = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentElection.getId());
-                stmt.setString(2, playerUuid);
-                ResultSet rs = stmt.executeQuery();
-                return rs.next() && rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check registration status", e);
-            return false;
-        }
+    /**
+     * Candidates of the region's election ordered by votes, served from memory.
+     */
+    public List<Candidate> getCandidates(String regionId) {
+        CandidateRoster roster = getRoster(regionId);
+        return roster != null ? roster.getCandidates() : Collections.emptyList();
+    }
+    
+    /**
+     * Results of the region's current roster snapshot, or null if the region
+     * does not vote. Recomputed only after the roster changed, so once voting
+     * closes every caller shares one instance until the election ends.
+     */
+    public ElectionResults getResults(String regionId) {
+        ElectionState state = getState(regionId);
+        return state != null ? state.getResults() : null;
+    }
+    
+    public boolean hasVoted(String regionId, UUID player) {
+        Election election = getElection(regionId);
+        return election != null && voteLedger.hasVoted(election.getId(), player);
+    }
+    
+    public boolean isRegistered(String regionId, UUID player) {
+        CandidateRoster roster = getRoster(regionId);
+        return roster != null && roster.contains(player);
     }
     
-    public void startNewElection(String regionId) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "INSERT INTO elections (region_id, phase, start_time) VALUES (?, ?, ?)";
+    /**
+     * Start an election in a region without one. Completes with null if the
+     * region already votes or the election could not be created.
+     */
+    public CompletableFuture<Election> startNewElection(String regionId) {
+        if (getState(regionId) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        Instant startTime = Instant.now();
+        return plugin.getDatabaseManager().supplyAsync(conn -> {
+            String query = "INSERT INTO elections (region_id, phase, start_time, created_at) VALUES (?, ?, ?, "
+                + plugin.getDatabaseManager().getBackend().currentTime() + ")";
             try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
                 stmt.setString(1, regionId);
                 stmt.setString(2, ElectionPhase.REGISTRATION.name());
-                stmt.setLong(3, Instant.now().getEpochSecond());
+                stmt.setLong(3, startTime.getEpochSecond());
                 stmt.executeUpdate();
                 
                 ResultSet rs = stmt.getGeneratedKeys();
                 if (rs.next()) {
-                    int electionId = rs.getInt(1);
-                    currentElection = new Election(
-                        electionId,
-                        regionId,
-                        ElectionPhase.REGISTRATION,
-                        Instant.now(),
-                        null
-                    );
+                    return rs.getInt(1);
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to start new election", e);
+            }
+            return null;
+        }).thenApply(electionId -> {
+            if (electionId == null) {
+                return null;
+            }
+            
+            Election election = new Election(
+                electionId,
+                regionId,
+                ElectionPhase.REGISTRATION,
+                startTime,
+                null
+            );
+            voteLedger.open(electionId);
+            ElectionState state = ElectionState.of(election, CandidateRoster.empty(electionId));
+            states.updateAndGet(current -> {
+                Map<String, ElectionState> updated = new LinkedHashMap<>(current);
+                updated.put(regionId, state);
+                return Collections.unmodifiableMap(updated);
+            });
+            plugin.getPhaseScheduler().schedule(regionId);
+            return election;
+        });
+    }
+    
+    /**
+     * First region of the rotation after the given one that has no running election.
+     * The region itself comes last, so once all others vote it simply starts over.
+     */
+    public String getNextFreeRegion(String currentRegion) {
+        String region = currentRegion;
+        for (int i = 0; i < plugin.getRegionManager().getRegionRotation().size(); i++) {
+            region = plugin.getRegionManager().getNextRegion(region);
+            if (getState(region) == null) {
+                return region;
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to start new election", e);
         }
+        return null;
     }
     
-    public void progressElection() {
-        if (currentElection == null) {
+    public void progressElection(String regionId) {
+        Election election = getElection(regionId);
+        if (election == null) {
             return;
         }
         
-        ElectionPhase nextPhase = currentElection.getPhase().getNext();
+        ElectionPhase nextPhase = election.getPhase().getNext();
         if (nextPhase == null) {
-            // Election ended, start new one in next region
-            String currentRegion = currentElection.getRegionId();
-            endCurrentElection();
-            
-            String nextRegion = plugin.getRegionManager().getNextRegion(currentRegion);
-            if (nextRegion != null && !nextRegion.equals(currentRegion)) {
-                try {
-                    startNewElection(nextRegion);
-                    plugin.getLogger().info("Started new election in region: " + nextRegion);
-                } catch (Exception e) {
-                    plugin.getLogger().severe("Failed to start new election in region " + nextRegion + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
-            } else {
-                plugin.getLogger().warning("No next region available or same region returned: " + nextRegion);
-            }
+            // Election ended, start new one in the next free region
+            rotateElection(regionId);
         } else {
             // Progress to next phase
-            updateElectionPhase(nextPhase);
-            plugin.getLogger().info("Progressed election to phase: " + nextPhase.getDisplayName());
+            updateElectionPhase(regionId, nextPhase);
+            plugin.getLogger().info("Progressed election in region " + regionId + " to phase: " + nextPhase.getDisplayName());
         }
     }
     
-    private void updateElectionPhase(ElectionPhase phase) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
+    /**
+     * End the region's election and start the next one in the next free region
+     * of the rotation. Completes with the new election, or null if none started.
+     */
+    public CompletableFuture<Election> rotateElection(String regionId) {
+        endElection(regionId);
+        
+        String nextRegion = getNextFreeRegion(regionId);
+        if (nextRegion == null) {
+            plugin.getLogger().warning("No next region available after " + regionId);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return startNewElection(nextRegion).thenApply(election -> {
+            if (election != null) {
+                plugin.getLogger().info("Started new election in region: " + nextRegion);
+            } else {
+                plugin.getLogger().severe("Failed to start new election in region " + nextRegion);
+            }
+            return election;
+        });
+    }
+    
+    private void updateElectionPhase(String regionId, ElectionPhase phase) {
+        ElectionState previous = getState(regionId);
+        int electionId = previous.getElectionId();
+        if (previous.getPhase() == ElectionPhase.VOTING) {
+            // Results are read from the database, push the last votes before they are
+            voteLedger.flush();
+        }
+        
+        // Switch in memory right away, the single database writer keeps the persisted order
+        ElectionState state = update(regionId, current -> current.withPhase(phase));
+        plugin.getPhaseScheduler().schedule(regionId);
+        
+        plugin.getDatabaseManager().runAsync(conn -> {
             String query = "UPDATE elections SET phase = ? WHERE id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 stmt.setString(1, phase.name());
-                stmt.setInt(2, currentElection.getId());
+                stmt.setInt(2, electionId);
                 stmt.executeUpdate();
-                
-                currentElection = new Election(
-                    currentElection.getId(),
-                    currentElection.getRegionId(),
-                    phase,
-                    currentElection.getStartTime(),
-                    currentElection.getEndTime()
-                );
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to update election phase", e);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to update election phase", e);
+        });
+        
+        if (phase == ElectionPhase.RESULTS) {
+            // Queued behind the last votes and the phase update
+            plugin.getResultsTransition().start(state);
         }
     }
     
-    public void endCurrentElection() {
-        if (currentElection == null) {
+    public void endElection(String regionId) {
+        ElectionState state = getState(regionId);
+        if (state == null) {
             return;
         }
         
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
+        states.updateAndGet(current -> {
+            Map<String, ElectionState> updated = new LinkedHashMap<>(current);
+            updated.remove(regionId);
+            return Collections.unmodifiableMap(updated);
+        });
+        int electionId = state.getElectionId();
+        long endTime = Instant.now().getEpochSecond();
+        voteLedger.close(electionId);
+        plugin.getDatabaseManager().runAsync(conn -> {
             String query = "UPDATE elections SET end_time = ? WHERE id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setLong(1, Instant.now().getEpochSecond());
-                stmt.setInt(2, currentElection.getId());
+                stmt.setLong(1, endTime);
+                stmt.setInt(2, electionId);
                 stmt.executeUpdate();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to end election", e);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to end election", e);
-        }
+        });
         
-        currentElection = null;
+        plugin.getPhaseScheduler().schedule(regionId);
+    }
+    
+    /**
+     * Publish the changed state of the region's election, returns it, or null if
+     * the region does not vote. The change may be applied more than once and must
+     * not have side effects.
+     */
+    private ElectionState update(String regionId, UnaryOperator<ElectionState> change) {
+        return states.updateAndGet(current -> {
+            ElectionState state = current.get(regionId);
+            if (state == null) {
+                return current;
+            }
+            Map<String, ElectionState> updated = new LinkedHashMap<>(current);
+            updated.put(regionId, change.apply(state));
+            return Collections.unmodifiableMap(updated);
+        }).get(regionId);
     }
     
     public Map<String, RoleData> getRoleData() {
@@ -0,0 +1,108 @@
+package cz.domca.elections.elections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of an election computed from one roster snapshot: the vote total,
+ * the candidates of every role and each role's winner. Built once per snapshot
+ * by ElectionManager, so after voting closes it is computed a single time and
+ * shared by the results menu, the winner announcement and the status command.
+ */
+public final class ElectionResults {
+    
+    private final CandidateRoster roster;
+    private final int totalVotes;
+    private final Map<String, List<Candidate>> byRole;
+    private final Map<String, Candidate> winners;
+    private final Map<String, Boolean> tied;
+    
+    private ElectionResults(CandidateRoster roster) {
+        Map<String, List<Candidate>> byRole = new LinkedHashMap<>();
+        int totalVotes = 0;
+        // The roster is ordered by votes, so the first candidate of a role is its winner
+        for (Candidate candidate : roster.getCandidates()) {
+            totalVotes += candidate.getVotes();
+            if (candidate.getRole() != null) {
+                byRole.computeIfAbsent(candidate.getRole(), role -> new ArrayList<>()).add(candidate);
+            }
+        }
+        
+        Map<String, Candidate> winners = new LinkedHashMap<>();
+        Map<String, Boolean> tied = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Candidate>> entry : byRole.entrySet()) {
+            List<Candidate> candidates = entry.getValue();
+            winners.put(entry.getKey(), candidates.get(0));
+            tied.put(entry.getKey(), candidates.size() > 1 && candidates.get(1).getVotes() == candidates.get(0).getVotes());
+            entry.setValue(Collections.unmodifiableList(candidates));
+        }
+        
+        this.roster = roster;
+        this.totalVotes = totalVotes;
+        this.byRole = Collections.unmodifiableMap(byRole);
+        this.winners = Collections.unmodifiableMap(winners);
+        this.tied = tied;
+    }
+    
+    public static ElectionResults of(CandidateRoster roster) {
+        return new ElectionResults(roster);
+    }
+    
+    /**
+     * Whether these results were computed from exactly this snapshot.
+     */
+    public boolean isFor(CandidateRoster roster) {
+        return this.roster == roster;
+    }
+    
+    public int getElectionId() {
+        return roster.getElectionId();
+    }
+    
+    public int getTotalVotes() {
+        return totalVotes;
+    }
+    
+    /**
+     * All candidates ordered by votes descending, then by name.
+     */
+    public List<Candidate> getCandidates() {
+        return roster.getCandidates();
+    }
+    
+    /**
+     * Candidates grouped by role in the order the roles first appear in the ranking.
+     */
+    public Map<String, List<Candidate>> getByRole() {
+        return byRole;
+    }
+    
+    /**
+     * Winner of every role. Ties go to the candidate ranked first, i.e. by name.
+     */
+    public Map<String, Candidate> getWinners() {
+        return winners;
+    }
+    
+    public boolean isWinner(Candidate candidate) {
+        Candidate winner = winners.get(candidate.getRole());
+        return winner != null && winner.getId() == candidate.getId();
+    }
+    
+    /**
+     * Whether the winner of the role has as many votes as the runner-up.
+     */
+    public boolean isTied(String role) {
+        return tied.getOrDefault(role, false);
+    }
+    
+    /**
+     * Share of all votes in percent, 0 when nobody voted.
+     */
+    public double getPercentage(Candidate candidate) {
+        return totalVotes > 0 ? (double) candidate.getVotes() / totalVotes * 100 : 0;
+    }
+}
@@ -0,0 +1,98 @@
+package cz.domca.elections.elections;
+
+import java.util.List;
+
+/**
+ * Immutable view of one region's election: the election with its phase, the
+ * candidate snapshot and the vote total. Every change produces a new state
+ * with a higher version, published by ElectionManager in one atomic step, so
+ * any thread reading a state sees a phase, candidates and totals that belong
+ * together. The results are computed from the snapshot on first use.
+ */
+public final class ElectionState {
+    
+    private final Election election;
+    private final CandidateRoster roster;
+    private final int totalVotes;
+    private final long version;
+    // Derived from the roster only, computing it twice is harmless
+    private volatile ElectionResults results;
+    
+    private ElectionState(Election election, CandidateRoster roster, int totalVotes, long version, ElectionResults results) {
+        this.election = election;
+        this.roster = roster;
+        this.totalVotes = totalVotes;
+        this.version = version;
+        this.results = results;
+    }
+    
+    public static ElectionState of(Election election, CandidateRoster roster) {
+        int totalVotes = 0;
+        for (Candidate candidate : roster.getCandidates()) {
+            totalVotes += candidate.getVotes();
+        }
+        return new ElectionState(election, roster, totalVotes, 0, null);
+    }
+    
+    public ElectionState withPhase(ElectionPhase phase) {
+        return new ElectionState(election.withPhase(phase), roster, totalVotes, version + 1, results);
+    }
+    
+    public ElectionState withCandidate(Candidate candidate) {
+        return new ElectionState(election, roster.withCandidate(candidate), totalVotes, version + 1, null);
+    }
+    
+    public ElectionState withVote(int candidateId) {
+        return new ElectionState(election, roster.withVote(candidateId), totalVotes + 1, version + 1, null);
+    }
+    
+    public Election getElection() {
+        return election;
+    }
+    
+    public int getElectionId() {
+        return election.getId();
+    }
+    
+    public String getRegionId() {
+        return election.getRegionId();
+    }
+    
+    public ElectionPhase getPhase() {
+        return election.getPhase();
+    }
+    
+    public CandidateRoster getRoster() {
+        return roster;
+    }
+    
+    /**
+     * Candidates ordered by votes, see {@link CandidateRoster#getCandidates()}.
+     */
+    public List<Candidate> getCandidates() {
+        return roster.getCandidates();
+    }
+    
+    public int getTotalVotes() {
+        return totalVotes;
+    }
+    
+    /**
+     * Incremented with every change of this election, starts at 0 when it is loaded or started.
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Results of this snapshot, computed once and shared by all readers of the state.
+     */
+    public ElectionResults getResults() {
+        ElectionResults computed = results;
+        if (computed == null) {
+            computed = ElectionResults.of(roster);
+            results = computed;
+        }
+        return computed;
+    }
+}
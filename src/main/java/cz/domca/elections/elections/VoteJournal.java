@@ -0,0 +1,295 @@
+package cz.domca.elections.elections;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only file of votes that were accepted but not yet written to the database.
+ * Appends only hand the entry to the OS, a single journal thread syncs the file
+ * right after, once for all votes appended in the meantime. A vote is on disk a
+ * moment after castVote returns, so a crash between two flushes loses at most
+ * the votes of that moment - the entries are replayed on next start.
+ * Compaction also runs on the journal thread, votes appended while it runs are
+ * carried over into the new file.
+ */
+public class VoteJournal {
+    
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    
+    private final File file;
+    private final Logger logger;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WeeklyElections-Journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Guarded by this
+    private FileChannel output;
+    private boolean syncQueued;
+    // Rewrite waiting for the journal thread, a newer snapshot replaces its entries
+    private Rewrite queuedRewrite;
+    private Rewrite runningRewrite;
+    
+    public VoteJournal(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+    
+    public synchronized void append(VoteEntry entry) throws IOException {
+        if (output == null) {
+            output = openForAppend();
+        }
+        write(output, entry);
+        if (queuedRewrite != null) {
+            queuedRewrite.appended.add(entry);
+        }
+        if (runningRewrite != null) {
+            runningRewrite.appended.add(entry);
+        }
+        queueSync();
+    }
+    
+    public synchronized List<VoteEntry> readAll() throws IOException {
+        List<VoteEntry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                VoteEntry entry = VoteEntry.parse(line);
+                // A torn last line (crash mid-write) is simply skipped
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * Replace the journal content with the given (still unflushed) entries on the
+     * journal thread. Entries appended from now on are kept as well, so the caller
+     * must take the snapshot under the same lock it appends under.
+     */
+    public synchronized void rewrite(List<VoteEntry> remaining) {
+        if (queuedRewrite != null) {
+            // Not started yet, the newer snapshot already contains what was appended since
+            queuedRewrite.entries = remaining;
+            queuedRewrite.appended.clear();
+            return;
+        }
+        
+        try {
+            writer.execute(this::runRewrite);
+            queuedRewrite = new Rewrite(remaining);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the journal keeps its entries and they are replayed on next start
+        }
+    }
+    
+    /**
+     * Sync what was appended and stop the journal thread.
+     */
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Vote journal did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        synchronized (this) {
+            if (output != null) {
+                output.force(false);
+                output.close();
+                output = null;
+            }
+        }
+    }
+    
+    private void queueSync() {
+        if (syncQueued) {
+            return;
+        }
+        try {
+            writer.execute(this::sync);
+            syncQueued = true;
+        } catch (RejectedExecutionException e) {
+            // Closing, close() syncs the file itself
+        }
+    }
+    
+    private void sync() {
+        FileChannel channel;
+        synchronized (this) {
+            syncQueued = false;
+            channel = output;
+        }
+        if (channel == null) {
+            return;
+        }
+        
+        try {
+            // Only the content has to survive, the file metadata is left to the OS
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Replaced by a rewrite, which synced the new file
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to sync vote journal", e);
+        }
+    }
+    
+    private void runRewrite() {
+        Rewrite rewrite;
+        synchronized (this) {
+            rewrite = queuedRewrite;
+            queuedRewrite = null;
+            runningRewrite = rewrite;
+        }
+        
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            // The bulk of the entries is written and synced without blocking appends
+            try (FileChannel tempOutput = FileChannel.open(temp.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (VoteEntry entry : rewrite.entries) {
+                    write(tempOutput, entry);
+                }
+                tempOutput.force(false);
+            }
+            
+            synchronized (this) {
+                runningRewrite = null;
+                if (output != null) {
+                    output.close();
+                    output = null;
+                }
+                
+                if (rewrite.entries.isEmpty() && rewrite.appended.isEmpty()) {
+                    Files.deleteIfExists(temp.toPath());
+                    Files.deleteIfExists(file.toPath());
+                    return;
+                }
+                
+                if (!rewrite.appended.isEmpty()) {
+                    try (FileChannel tempOutput = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        for (VoteEntry entry : rewrite.appended) {
+                            write(tempOutput, entry);
+                        }
+                    }
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                
+                if (!rewrite.appended.isEmpty()) {
+                    // The carried over entries are synced by the next task of this thread
+                    output = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    queueSync();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                runningRewrite = null;
+            }
+            // The old file is still complete, appends kept going to it
+            logger.log(Level.WARNING, "Failed to compact vote journal", e);
+        }
+    }
+    
+    /**
+     * Open the journal positioned at its end, only this channel writes to it.
+     * A line torn by a crash is terminated first, otherwise the next entry would
+     * be glued to it and both would be dropped on replay.
+     */
+    private FileChannel openForAppend() throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            channel.position(size);
+            if (size > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                if (last.get(0) != '\n') {
+                    channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+    
+    private static void write(FileChannel channel, VoteEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(entry.serialize().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private static final class Rewrite {
+        private List<VoteEntry> entries;
+        // Appended after the snapshot was taken
+        private final List<VoteEntry> appended = new ArrayList<>();
+        
+        private Rewrite(List<VoteEntry> entries) {
+            this.entries = entries;
+        }
+    }
+    
+    public static class VoteEntry {
+        private final int electionId;
+        private final int candidateId;
+        private final String voterUuid;
+        private final long votedAt;
+        
+        public VoteEntry(int electionId, int candidateId, String voterUuid, long votedAt) {
+            this.electionId = electionId;
+            this.candidateId = candidateId;
+            this.voterUuid = voterUuid;
+            this.votedAt = votedAt;
+        }
+        
+        public int getElectionId() { return electionId; }
+        public int getCandidateId() { return candidateId; }
+        public String getVoterUuid() { return voterUuid; }
+        public long getVotedAt() { return votedAt; }
+        
+        String serialize() {
+            return electionId + ";" + candidateId + ";" + votedAt + ";" + voterUuid + "\n";
+        }
+        
+        static VoteEntry parse(String line) {
+            String[] parts = line.split(";");
+            if (parts.length != 4 || parts[3].length() != 36) {
+                return null;
+            }
+            try {
+                return new VoteEntry(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), parts[3], Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
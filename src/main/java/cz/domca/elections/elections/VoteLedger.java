@@ -0,0 +1,262 @@
+package cz.domca.elections.elections;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.database.DatabaseExecutor;
+import cz.domca.elections.elections.VoteJournal.VoteEntry;
+import cz.domca.elections.util.UuidHashSet;
+
+/**
+ * Authoritative in-memory vote state of the running elections, one voter set
+ * per election so every region votes independently. Votes are accepted
+ * instantly on the main thread, journaled to disk and written to the
+ * votes/candidates tables in batches by the database thread. All elections
+ * share the journal and the batches, entries carry their election id.
+ * Votes the startup replay could not write stay in memory and in the journal
+ * until a later flush writes them.
+ */
+public class VoteLedger {
+    
+    private static final String JOURNAL_FILE = "votes.journal";
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final VoteJournal journal;
+    
+    // Main thread only, voters by election id
+    private final Map<Integer, UuidHashSet> voters = new HashMap<>();
+    // Main thread only, candidates of recovered votes missing from the stored counts by election id
+    private final Map<Integer, List<Integer>> recoveredVotes = new HashMap<>();
+    
+    // Guarded by this
+    private final List<VoteEntry> recovered = new ArrayList<>();
+    private final List<VoteEntry> pending = new ArrayList<>();
+    private final List<VoteEntry> inFlight = new ArrayList<>();
+    // Set when the journal could not be read, it is then never compacted
+    private boolean journalUnreadable;
+    
+    public VoteLedger(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+        this.journal = new VoteJournal(new File(plugin.getDataFolder(), JOURNAL_FILE), plugin.getLogger());
+    }
+    
+    /**
+     * Replay votes left in the journal by a crash, then load the vote state
+     * of the given elections. Runs during plugin enable.
+     */
+    public void initialize(Collection<Election> elections) {
+        List<VoteEntry> unflushed = new ArrayList<>();
+        try {
+            unflushed = journal.readAll();
+        } catch (IOException e) {
+            // Votes in it are unknown, keep the file as it is for the next start
+            journalUnreadable = true;
+            plugin.getLogger().log(Level.SEVERE, "Failed to read vote journal, it is left untouched", e);
+        }
+        
+        if (!unflushed.isEmpty()) {
+            List<VoteEntry> replay = unflushed;
+            try {
+                plugin.getDatabaseManager().supplyNow(DatabaseExecutor.transactional(conn -> {
+                    writeBatch(conn, replay);
+                    return null;
+                }));
+                plugin.getLogger().info("Recovered " + unflushed.size() + " votes from the vote journal");
+            } catch (CompletionException e) {
+                // Kept in memory and in the journal, every flush retries them
+                recovered.addAll(unflushed);
+                plugin.getLogger().log(Level.SEVERE, "Failed to replay vote journal, "
+                    + unflushed.size() + " votes are retried with the next flush", e);
+            }
+        }
+        if (recovered.isEmpty() && !journalUnreadable) {
+            journal.rewrite(new ArrayList<>());
+        }
+        
+        for (Election election : elections) {
+            int id = election.getId();
+            List<UUID> loaded = plugin.getDatabaseManager().supplyNow(conn -> loadVoters(conn, id));
+            UuidHashSet electionVoters = new UuidHashSet();
+            for (UUID voter : loaded) {
+                electionVoters.add(voter);
+            }
+            voters.put(id, electionVoters);
+        }
+        
+        // Recovered votes are not in the database yet, their voters must not vote again
+        for (VoteEntry entry : recovered) {
+            UuidHashSet electionVoters = voters.get(entry.getElectionId());
+            if (electionVoters != null && electionVoters.add(UUID.fromString(entry.getVoterUuid()))) {
+                recoveredVotes.computeIfAbsent(entry.getElectionId(), id -> new ArrayList<>()).add(entry.getCandidateId());
+            }
+        }
+    }
+    
+    /**
+     * Candidates of the recovered votes of the election that the stored vote
+     * counts do not include yet. Empty unless the startup replay failed.
+     */
+    public List<Integer> getRecoveredVotes(int electionId) {
+        return recoveredVotes.getOrDefault(electionId, Collections.emptyList());
+    }
+    
+    /**
+     * Start accepting votes of a freshly started election.
+     */
+    public void open(int electionId) {
+        voters.put(electionId, new UuidHashSet());
+    }
+    
+    /**
+     * Stop accepting votes of an ended election, its pending votes are flushed.
+     */
+    public void close(int electionId) {
+        flush();
+        voters.remove(electionId);
+    }
+    
+    public boolean hasVoted(int electionId, UUID voter) {
+        UuidHashSet electionVoters = voters.get(electionId);
+        return electionVoters != null && electionVoters.contains(voter);
+    }
+    
+    /**
+     * Accept a vote for a candidate of the election. Returns false if the election
+     * is not open, the player already voted in it or the vote could not be journaled.
+     */
+    public boolean castVote(int electionId, UUID voter, int candidateId) {
+        UuidHashSet electionVoters = voters.get(electionId);
+        if (electionVoters == null || electionVoters.contains(voter)) {
+            return false;
+        }
+        
+        VoteEntry entry = new VoteEntry(electionId, candidateId, voter.toString(), Instant.now().getEpochSecond());
+        synchronized (this) {
+            // Journal and pending list change together, a compaction must never drop the entry.
+            // The append does not wait for the disk, the journal thread syncs it.
+            try {
+                journal.append(entry);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to journal vote", e);
+                return false;
+            }
+            pending.add(entry);
+        }
+        
+        electionVoters.add(voter);
+        return true;
+    }
+    
+    /**
+     * Hand all pending votes to the database thread as one transaction, recovered
+     * votes that are still unwritten go first. Batches are written in submission
+     * order, so anything queued on the database thread after this call sees these votes.
+     */
+    public void flush() {
+        List<VoteEntry> batch;
+        synchronized (this) {
+            if (pending.isEmpty() && recovered.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(recovered);
+            batch.addAll(pending);
+            recovered.clear();
+            pending.clear();
+            inFlight.addAll(batch);
+        }
+        
+        plugin.getDatabaseManager().getExecutor().submit(DatabaseExecutor.transactional(conn -> {
+            writeBatch(conn, batch);
+            return null;
+        })).whenComplete((ignored, error) -> {
+            synchronized (this) {
+                inFlight.removeAll(batch);
+                if (error != null) {
+                    // Keep them for the next flush, they are still in the journal
+                    pending.addAll(0, batch);
+                    return;
+                }
+                if (journalUnreadable) {
+                    return;
+                }
+                // Only the snapshot is taken under the lock, the journal thread writes the new file
+                List<VoteEntry> unwritten = new ArrayList<>(recovered);
+                unwritten.addAll(inFlight);
+                unwritten.addAll(pending);
+                journal.rewrite(unwritten);
+            }
+        });
+    }
+    
+    public void shutdown() {
+        flush();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close vote journal", e);
+        }
+    }
+    
+    /**
+     * Idempotent write: duplicates are ignored and counters are recomputed from
+     * the votes table, so replaying an already flushed entry changes nothing.
+     * Must run inside a transaction.
+     */
+    private void writeBatch(Connection conn, List<VoteEntry> batch) throws SQLException {
+        String insertVote = plugin.getDatabaseManager().getBackend().insertIgnore()
+            + " votes (election_id, voter_uuid, candidate_id, voted_at) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(insertVote)) {
+            for (VoteEntry entry : batch) {
+                stmt.setInt(1, entry.getElectionId());
+                stmt.setString(2, entry.getVoterUuid());
+                stmt.setInt(3, entry.getCandidateId());
+                stmt.setLong(4, entry.getVotedAt());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        
+        Set<Integer> touchedCandidates = new LinkedHashSet<>();
+        for (VoteEntry entry : batch) {
+            touchedCandidates.add(entry.getCandidateId());
+        }
+        
+        String updateCount = "UPDATE candidates SET votes = (SELECT COUNT(*) FROM votes WHERE votes.candidate_id = candidates.id) WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(updateCount)) {
+            for (int candidateId : touchedCandidates) {
+                stmt.setInt(1, candidateId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    private List<UUID> loadVoters(Connection conn, int electionId) throws SQLException {
+        List<UUID> loaded = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT voter_uuid FROM votes WHERE election_id = ?")) {
+            stmt.setInt(1, electionId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                loaded.add(UUID.fromString(rs.getString("voter_uuid")));
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,123 @@
+package cz.domca.elections.gui;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import cz.domca.elections.elections.Candidate;
+import cz.domca.elections.elections.CandidateRoster;
+import cz.domca.elections.gui.ElectionMenuHolder.SlotAction;
+
+/**
+ * Candidate pages rendered once and shared by every viewer in the same state.
+ * A page only depends on the roster snapshot, the page number and whether the
+ * viewer can still vote. Pages are kept per election, so a new snapshot of one
+ * region (a registration or a vote) only drops that election's pages, while
+ * reloading the gui.yml templates or a head texture arriving drops them all.
+ * Main-thread only.
+ */
+final class CandidatePageCache {
+    
+    static final int PAGE_SIZE = 45; // 9x5 grid
+    
+    enum ViewerState {
+        CAN_VOTE,
+        VOTED,
+        VOTING_CLOSED
+    }
+    
+    interface ItemRenderer {
+        ItemStack render(Candidate candidate, ViewerState state);
+    }
+    
+    private final Map<Integer, ElectionPages> elections = new HashMap<>();
+    private int renderedConfigVersion;
+    private int renderedTextureVersion;
+    
+    /**
+     * Rendered page of the roster, built on the first request after a change.
+     */
+    RenderedPage getPage(CandidateRoster roster, int page, ViewerState state,
+                         int configVersion, int textureVersion, ItemRenderer renderer) {
+        // Templates and textures are shared, this also forgets elections that already ended
+        if (configVersion != renderedConfigVersion || textureVersion != renderedTextureVersion) {
+            elections.clear();
+            renderedConfigVersion = configVersion;
+            renderedTextureVersion = textureVersion;
+        }
+        
+        ElectionPages electionPages = elections.get(roster.getElectionId());
+        // Snapshots are immutable, a different instance means the candidates or votes changed.
+        // The version alone is not enough, a roster reloaded from the database starts again at 0.
+        if (electionPages == null || electionPages.roster != roster) {
+            electionPages = new ElectionPages(roster);
+            elections.put(roster.getElectionId(), electionPages);
+        }
+        
+        int key = page * ViewerState.values().length + state.ordinal();
+        RenderedPage rendered = electionPages.pages.get(key);
+        if (rendered == null) {
+            rendered = render(roster.getCandidates(), page, state, renderer);
+            electionPages.pages.put(key, rendered);
+        }
+        return rendered;
+    }
+    
+    private RenderedPage render(List<Candidate> candidates, int page, ViewerState state, ItemRenderer renderer) {
+        int startIndex = page * PAGE_SIZE;
+        int endIndex = Math.min(startIndex + PAGE_SIZE, candidates.size());
+        MenuAction action = state == ViewerState.CAN_VOTE ? MenuAction.VOTE : MenuAction.CANDIDATE_INFO;
+        
+        Candidate[] shown = candidates.subList(Math.min(startIndex, endIndex), endIndex).toArray(new Candidate[0]);
+        ItemStack[] items = new ItemStack[shown.length];
+        SlotAction[] actions = new SlotAction[shown.length];
+        for (int slot = 0; slot < shown.length; slot++) {
+            items[slot] = renderer.render(shown[slot], state);
+            actions[slot] = SlotAction.candidate(action, shown[slot].getId());
+        }
+        return new RenderedPage(shown, items, actions, endIndex < candidates.size());
+    }
+    
+    private static final class ElectionPages {
+        private final CandidateRoster roster;
+        private final Map<Integer, RenderedPage> pages = new HashMap<>();
+        
+        private ElectionPages(CandidateRoster roster) {
+            this.roster = roster;
+        }
+    }
+    
+    static final class RenderedPage {
+        private final Candidate[] candidates;
+        private final ItemStack[] items;
+        private final SlotAction[] actions;
+        private final boolean hasNextPage;
+        
+        private RenderedPage(Candidate[] candidates, ItemStack[] items, SlotAction[] actions, boolean hasNextPage) {
+            this.candidates = candidates;
+            this.items = items;
+            this.actions = actions;
+            this.hasNextPage = hasNextPage;
+        }
+        
+        /**
+         * Copy the page into the first slots of the menu. Read-only views skip the click actions.
+         */
+        void fill(Inventory inventory, ElectionMenuHolder menu, boolean bindActions) {
+            for (int slot = 0; slot < items.length; slot++) {
+                inventory.setItem(slot, items[slot].clone());
+                menu.showCandidate(slot, candidates[slot]);
+                if (bindActions) {
+                    menu.bind(slot, actions[slot]);
+                }
+            }
+        }
+        
+        boolean hasNextPage() {
+            return hasNextPage;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package cz.domca.elections.gui;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+import cz.domca.elections.elections.Candidate;
+import cz.domca.elections.elections.CandidateRoster;
+
+/**
+ * Holder of every inventory opened by GuiManager. Click handling identifies
+ * election menus with a single instanceof check and reads the menu context
+ * from here instead of parsing the inventory title.
+ * <p>
+ * Each menu also carries a table of slot actions filled while it is built,
+ * so a click is resolved by array index rather than by the item's name.
+ * Candidate menus additionally remember which candidate snapshot each head
+ * shows, which is what live vote updates diff against.
+ */
+public class ElectionMenuHolder implements InventoryHolder {
+    
+    public enum MenuKind {
+        MAIN_MENU,
+        REGISTRATION,
+        VOTING,
+        VIEW_CANDIDATES,
+        RESULTS
+    }
+    
+    private final MenuKind kind;
+    private final String regionId;
+    private final int page;
+    private final int electionId;
+    private Inventory inventory;
+    private SlotAction[] actions = new SlotAction[0];
+    private Candidate[] shownCandidates = new Candidate[0];
+    private CandidateRoster shownRoster;
+    
+    public ElectionMenuHolder(MenuKind kind, String regionId, int page, int electionId) {
+        this.kind = kind;
+        this.regionId = regionId;
+        this.page = page;
+        this.electionId = electionId;
+    }
+    
+    /**
+     * Create the inventory owned by this holder.
+     */
+    public Inventory createInventory(int size, String title) {
+        this.inventory = Bukkit.createInventory(this, size, title);
+        this.actions = new SlotAction[size];
+        this.shownCandidates = new Candidate[size];
+        return inventory;
+    }
+    
+    public void bind(int slot, SlotAction action) {
+        if (slot >= 0 && slot < actions.length) {
+            actions[slot] = action;
+        }
+    }
+    
+    /**
+     * Action of a raw slot, null for empty slots and the player's own inventory.
+     */
+    public SlotAction getAction(int rawSlot) {
+        return rawSlot >= 0 && rawSlot < actions.length ? actions[rawSlot] : null;
+    }
+    
+    public void showCandidate(int slot, Candidate candidate) {
+        if (slot >= 0 && slot < shownCandidates.length) {
+            shownCandidates[slot] = candidate;
+        }
+    }
+    
+    /**
+     * Candidate as last rendered into the slot, null for other slots.
+     */
+    public Candidate getShownCandidate(int slot) {
+        return slot >= 0 && slot < shownCandidates.length ? shownCandidates[slot] : null;
+    }
+    
+    /**
+     * Roster snapshot the candidate heads were last rendered from.
+     */
+    public CandidateRoster getShownRoster() {
+        return shownRoster;
+    }
+    
+    public void setShownRoster(CandidateRoster shownRoster) {
+        this.shownRoster = shownRoster;
+    }
+    
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+    
+    public MenuKind getKind() {
+        return kind;
+    }
+    
+    public String getRegionId() {
+        return regionId;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    /**
+     * Election the menu was opened for, -1 when there was none.
+     */
+    public int getElectionId() {
+        return electionId;
+    }
+    
+    public static final class SlotAction {
+        private final MenuAction action;
+        private final int candidateId;
+        private final String roleId;
+        
+        private SlotAction(MenuAction action, int candidateId, String roleId) {
+            this.action = action;
+            this.candidateId = candidateId;
+            this.roleId = roleId;
+        }
+        
+        public static SlotAction of(MenuAction action) {
+            return new SlotAction(action, -1, null);
+        }
+        
+        public static SlotAction candidate(MenuAction action, int candidateId) {
+            return new SlotAction(action, candidateId, null);
+        }
+        
+        public static SlotAction role(String roleId) {
+            return new SlotAction(MenuAction.SELECT_ROLE, -1, roleId);
+        }
+        
+        public MenuAction getAction() {
+            return action;
+        }
+        
+        public int getCandidateId() {
+            return candidateId;
+        }
+        
+        public String getRoleId() {
+            return roleId;
+        }
+    }
+}
@@ -1,231 +1,405 @@
 package cz.domca.elections.gui;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
 import cz.domca.elections.elections.Candidate;
+import cz.domca.elections.elections.CandidateRoster;
 import cz.domca.elections.elections.ElectionManager;
+import cz.domca.elections.elections.ElectionResults;
+import cz.domca.elections.elections.ElectionState;
+import cz.domca.elections.gui.CandidatePageCache.RenderedPage;
+import cz.domca.elections.gui.CandidatePageCache.ViewerState;
+import cz.domca.elections.gui.ElectionMenuHolder.MenuKind;
+import cz.domca.elections.gui.ElectionMenuHolder.SlotAction;
+import cz.domca.elections.util.TextTemplate;
 
 public class GuiManager {
     
+    // Main menu item keys in gui.yml and the menus they open
+    private static final Map<String, MenuAction> MAIN_MENU_ACTIONS = Map.of(
+        "register", MenuAction.REGISTER,
+        "candidates", MenuAction.VIEW_CANDIDATES,
+        "vote", MenuAction.OPEN_VOTING,
+        "results", MenuAction.OPEN_RESULTS,
+        "close", MenuAction.CLOSE
+    );
+    
+    private static final CandidateRoster NO_CANDIDATES = CandidateRoster.empty(-1);
+    
     private final WeeklyElectionsPlugin plugin;
+    private final SkullProfileCache skullProfiles;
+    private final CandidatePageCache candidatePages = new CandidatePageCache();
+    private final LiveMenuUpdater liveMenus;
+    // Compiled gui.yml menus by section name, dropped when the configs are reloaded
+    private final Map<String, MenuTemplate> templates = new HashMap<>();
+    private int templatesVersion = -1;
     
     public GuiManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
+        this.skullProfiles = new SkullProfileCache(plugin);
+        this.liveMenus = new LiveMenuUpdater(plugin, this::refreshMenu);
+    }
+    
+    /**
+     * Load cached head textures, requires the database and the running elections.
+     */
+    public void initialize() {
+        skullProfiles.load();
+    }
+    
+    public void shutdown() {
+        liveMenus.shutdown();
+        skullProfiles.shutdown();
+    }
+    
+    /**
+     * Apply reloaded settings to menus that are already open.
+     */
+    public void reload() {
+        liveMenus.reschedule();
+    }
+    
+    public SkullProfileCache getSkullProfiles() {
+        return skullProfiles;
     }
     
     public void openMainMenu(Player player, String regionId) {
-        ConfigurationSection mainMenuConfig = plugin.getConfigManager().getConfig("gui.yml").getConfigurationSection("main_menu");
-        if (mainMenuConfig == null) return;
+        MenuTemplate template = getTemplate("main_menu");
+        if (template == null) return;
         
-        String title = colorize(mainMenuConfig.getString("title", "Volby"))
-            .replace("%region%", colorize(plugin.getRegionManager().getRegion(regionId).getDisplayName()));
-        int size = mainMenuConfig.getInt("size", 27);
+        String title = template.getTitle().render("region", plugin.getRegionManager().getRegion(regionId).getDisplayName());
         
-        Inventory inventory = Bukkit.createInventory((InventoryHolder) null, size, title);
+        ElectionMenuHolder menu = createMenu(MenuKind.MAIN_MENU, regionId, 0);
+        Inventory inventory = template.createInventory(menu, title);
         
-        // Get current election phase to conditionally show buttons
-        cz.domca.elections.elections.ElectionPhase currentPhase = null;
-        if (plugin.getElectionManager().isElectionActive()) {
-            currentPhase = plugin.getElectionManager().getCurrentElection().getPhase();
-        }
-        
-        // Add items
-        ConfigurationSection itemsConfig = mainMenuConfig.getConfigurationSection("items");
-        if (itemsConfig != null) {
-            for (String itemKey : itemsConfig.getKeys(false)) {
-                ConfigurationSection itemConfig = itemsConfig.getConfigurationSection(itemKey);
-                if (itemConfig != null) {
-                    // Skip "Zobrazit kandidáty" button during RESULTS phase
-                    if (itemKey.equals("candidates") && currentPhase == cz.domca.elections.elections.ElectionPhase.RESULTS) {
-                        continue;
-                    }
-                    
-                    // Skip "Hlasovat" button during RESULTS phase
-                    if (itemKey.equals("vote") && currentPhase == cz.domca.elections.elections.ElectionPhase.RESULTS) {
-                        continue;
-                    }
-                    
-                    int slot = itemConfig.getInt("slot");
-                    ItemStack item = createGuiItem(itemConfig);
-                    inventory.setItem(slot, item);
-                }
-            }
+        // Candidates and voting buttons are hidden during the RESULTS phase
+        if (plugin.getElectionManager().isElectionActive(regionId)
+                && plugin.getElectionManager().getElection(regionId).getPhase() == cz.domca.elections.elections.ElectionPhase.RESULTS) {
+            template.hide(inventory, menu, "candidates");
+            template.hide(inventory, menu, "vote");
         }
         
         player.openInventory(inventory);
     }
     
     public void openRegistrationForm(Player player, String regionId) {
-        ConfigurationSection regFormConfig = plugin.getConfigManager().getConfig("gui.yml").getConfigurationSection("registration_form");
-        if (regFormConfig == null) return;
-        
-        String title = colorize(regFormConfig.getString("title", "Registrace"));
-        int size = regFormConfig.getInt("size", 45);
-        
-        Inventory inventory = Bukkit.createInventory((InventoryHolder) null, size, title);
-        
-        // Add role selection items
-        ConfigurationSection itemsConfig = regFormConfig.getConfigurationSection("items");
-        Map<String, ElectionManager.RoleData> roles = plugin.getElectionManager().getRoleData();
+        MenuTemplate template = getTemplate("registration_form");
+        if (template == null) return;
         
-        if (itemsConfig != null) {
-            for (String itemKey : itemsConfig.getKeys(false)) {
-                ConfigurationSection itemConfig = itemsConfig.getConfigurationSection(itemKey);
-                if (itemConfig != null) {
-                    int slot = itemConfig.getInt("slot");
-                    ItemStack item = createGuiItem(itemConfig);
-                    
-                    // Add role description if it's a role item
-                    if (roles.containsKey(itemKey)) {
-                        ElectionManager.RoleData roleData = roles.get(itemKey);
-                        ItemMeta meta = item.getItemMeta();
-                        if (meta != null) {
-                            List<String> lore = meta.getLore();
-                            if (lore == null) lore = new ArrayList<>();
-                            lore.add("");
-                            lore.add(colorize("&7" + roleData.getDescription()));
-                            meta.setLore(lore);
-                            item.setItemMeta(meta);
-                        }
-                    }
-                    
-                    inventory.setItem(slot, item);
-                }
-            }
-        }
-        
-        player.openInventory(inventory);
+        ElectionMenuHolder menu = createMenu(MenuKind.REGISTRATION, regionId, 0);
+        player.openInventory(template.createInventory(menu, template.getTitle().render()));
     }
     
     public void openViewCandidatesGui(Player player, String regionId) {
         // Read-only view of candidates (just shows heads and lore, no voting)
         ConfigurationSection votingConfig = plugin.getConfigManager().getConfig("gui.yml").getConfigurationSection("voting_gui");
-        if (votingConfig == null) return;
+        MenuTemplate template = getTemplate("voting_gui");
+        if (votingConfig == null || template == null) return;
         
         String title = "§eZobrazit kandidáty - " + colorize(plugin.getRegionManager().getRegion(regionId).getDisplayName());
-        int size = votingConfig.getInt("size", 54);
         
-        Inventory inventory = Bukkit.createInventory((InventoryHolder) null, size, title);
+        ElectionMenuHolder menu = createMenu(MenuKind.VIEW_CANDIDATES, regionId, 0);
+        Inventory inventory = template.createInventory(menu, title);
         
-        // Get candidates for current election
-        List<Candidate> candidates = plugin.getElectionManager().getCandidates();
+        // Same items as the voting menu with voting closed, but without click actions
+        CandidateRoster roster = getCurrentRoster(regionId);
+        getCandidatePage(roster, 0, ViewerState.VOTING_CLOSED, votingConfig).fill(inventory, menu, false);
+        menu.setShownRoster(roster);
         
-        // Add candidate items (read-only, canVote = false forces read-only mode)
-        int slot = 0;
-        for (int i = 0; i < candidates.size() && slot < 45; i++) {
-            Candidate candidate = candidates.get(i);
-            ItemStack item = createCandidateItem(candidate, false, false, votingConfig); // Both false = read-only
-            inventory.setItem(slot++, item);
-        }
-        
-        // Add close button
-        ConfigurationSection itemsConfig = votingConfig.getConfigurationSection("items");
-        if (itemsConfig != null) {
-            ConfigurationSection closeConfig = itemsConfig.getConfigurationSection("close");
-            if (closeConfig != null) {
-                inventory.setItem(closeConfig.getInt("slot"), createGuiItem(closeConfig));
-            }
-        }
+        // Only the close button of the voting controls applies here
+        template.hide(inventory, menu, "previous_page");
+        template.hide(inventory, menu, "next_page");
         
         player.openInventory(inventory);
+        liveMenus.subscribe(menu);
     }
     
     public void openVotingGui(Player player, String regionId, int page) {
         ConfigurationSection votingConfig = plugin.getConfigManager().getConfig("gui.yml").getConfigurationSection("voting_gui");
-        if (votingConfig == null) return;
-        
-        String title = colorize(votingConfig.getString("title", "Hlasování"))
-            .replace("%region%", colorize(plugin.getRegionManager().getRegion(regionId).getDisplayName()));
-        
-        // Add page number to title (hidden at the end for parsing)
-        title = title + "§0§r" + page; // Hidden page marker
-        
-        int size = votingConfig.getInt("size", 54);
-        
-        Inventory inventory = Bukkit.createInventory((InventoryHolder) null, size, title);
-        
-        // Get candidates for current election (should match region if election is active)
-        List<Candidate> candidates = plugin.getElectionManager().getCandidates();
-        boolean hasVoted = plugin.getElectionManager().hasVoted(player.getUniqueId().toString());
-        boolean canVote = plugin.getElectionManager().canVote();
+        MenuTemplate template = getTemplate("voting_gui");
+        if (votingConfig == null || template == null) return;
+        
+        String title = template.getTitle().render("region", plugin.getRegionManager().getRegion(regionId).getDisplayName());
+        
+        ElectionMenuHolder menu = createMenu(MenuKind.VOTING, regionId, page);
+        Inventory inventory = template.createInventory(menu, title);
+        
+        // Viewers only differ in whether they can still vote, the pages are shared
+        ViewerState state;
+        if (plugin.getElectionManager().hasVoted(regionId, player.getUniqueId())) {
+            state = ViewerState.VOTED;
+        } else if (plugin.getElectionManager().canVote(regionId)) {
+            state = ViewerState.CAN_VOTE;
+        } else {
+            state = ViewerState.VOTING_CLOSED;
+        }
         
-        // Calculate pagination
-        int itemsPerPage = 45; // 9x5 grid
-        int startIndex = page * itemsPerPage;
-        int endIndex = Math.min(startIndex + itemsPerPage, candidates.size());
+        CandidateRoster roster = getCurrentRoster(regionId);
+        RenderedPage candidatePage = getCandidatePage(roster, page, state, votingConfig);
+        candidatePage.fill(inventory, menu, true);
+        menu.setShownRoster(roster);
         
-        // Add candidate items
-        int slot = 0;
-        for (int i = startIndex; i < endIndex; i++) {
-            Candidate candidate = candidates.get(i);
-            ItemStack item = createCandidateItem(candidate, hasVoted, canVote, votingConfig);
-            inventory.setItem(slot++, item);
+        // Page buttons only where there is a page to go to
+        if (page == 0) {
+            template.hide(inventory, menu, "previous_page");
         }
-        
-        // Add navigation and control items
-        ConfigurationSection itemsConfig = votingConfig.getConfigurationSection("items");
-        if (itemsConfig != null) {
-            // Previous page
-            if (page > 0) {
-                ConfigurationSection prevConfig = itemsConfig.getConfigurationSection("previous_page");
-                if (prevConfig != null) {
-                    inventory.setItem(prevConfig.getInt("slot"), createGuiItem(prevConfig));
-                }
-            }
-            
-            // Next page
-            if (endIndex < candidates.size()) {
-                ConfigurationSection nextConfig = itemsConfig.getConfigurationSection("next_page");
-                if (nextConfig != null) {
-                    inventory.setItem(nextConfig.getInt("slot"), createGuiItem(nextConfig));
-                }
-            }
-            
-            // Close button
-            ConfigurationSection closeConfig = itemsConfig.getConfigurationSection("close");
-            if (closeConfig != null) {
-                inventory.setItem(closeConfig.getInt("slot"), createGuiItem(closeConfig));
-            }
+        if (!candidatePage.hasNextPage()) {
+            template.hide(inventory, menu, "next_page");
         }
         
         player.openInventory(inventory);
+        liveMenus.subscribe(menu);
     }
     
     public void openResultsGui(Player player, String regionId) {
         ConfigurationSection resultsConfig = plugin.getConfigManager().getConfig("gui.yml").getConfigurationSection("results_gui");
         if (resultsConfig == null) return;
         
-        String title = colorize(resultsConfig.getString("title", "Výsledky"))
-            .replace("%region%", colorize(plugin.getRegionManager().getRegion(regionId).getDisplayName()));
+        String title = TextTemplate.of(resultsConfig.getString("title", "Výsledky"))
+            .render("region", plugin.getRegionManager().getRegion(regionId).getDisplayName());
         int size = resultsConfig.getInt("size", 54);
         
-        Inventory inventory = Bukkit.createInventory((InventoryHolder) null, size, title);
+        ElectionMenuHolder menu = createMenu(MenuKind.RESULTS, regionId, 0);
+        Inventory inventory = menu.createInventory(size, title);
         
-        List<Candidate> candidates = plugin.getElectionManager().getCandidates();
+        // Roster and results of one snapshot, so the heads and percentages match
+        ElectionState state = plugin.getElectionManager().getState(regionId);
+        CandidateRoster roster = state != null ? state.getRoster() : NO_CANDIDATES;
+        ElectionResults results = state != null ? state.getResults() : ElectionResults.of(roster);
         
-        // Sort candidates by votes (already sorted from ElectionManager)
+        // Candidates are already ranked by votes
         int slot = 0;
-        for (Candidate candidate : candidates) {
-            ItemStack item = createResultItem(candidate, slot == 0, resultsConfig);
+        for (Candidate candidate : results.getCandidates()) {
+            ItemStack item = createResultItem(candidate, results, resultsConfig);
+            menu.showCandidate(slot, candidate);
             inventory.setItem(slot++, item);
             
             if (slot >= size - 9) break; // Leave space for controls
         }
+        menu.setShownRoster(roster);
         
         player.openInventory(inventory);
+        liveMenus.subscribe(menu);
+    }
+    
+    // Rewrite the heads whose vote counts differ from the newer snapshot
+    private void refreshMenu(ElectionMenuHolder menu, CandidateRoster roster) {
+        Inventory inventory = menu.getInventory();
+        ConfigurationSection guiConfig = plugin.getConfigManager().getConfig("gui.yml");
+        
+        switch (menu.getKind()) {
+            case VOTING:
+            case VIEW_CANDIDATES: {
+                ConfigurationSection votingConfig = guiConfig.getConfigurationSection("voting_gui");
+                if (votingConfig == null) return;
+                
+                // Heads stay in place so clicks keep matching, only their counts change
+                HumanEntity viewer = inventory.getViewers().get(0);
+                boolean readOnly = menu.getKind() == MenuKind.VIEW_CANDIDATES;
+                boolean hasVoted = !readOnly && plugin.getElectionManager().hasVoted(menu.getRegionId(), viewer.getUniqueId());
+                boolean canVote = !readOnly && plugin.getElectionManager().canVote(menu.getRegionId());
+                
+                for (int slot = 0; slot < inventory.getSize(); slot++) {
+                    Candidate shown = menu.getShownCandidate(slot);
+                    Candidate current = shown != null ? roster.getById(shown.getId()) : null;
+                    if (current == null || current.getVotes() == shown.getVotes()) {
+                        continue;
+                    }
+                    
+                    inventory.setItem(slot, createCandidateItem(current, hasVoted, canVote, votingConfig));
+                    menu.showCandidate(slot, current);
+                }
+                break;
+            }
+            case RESULTS: {
+                ConfigurationSection resultsConfig = guiConfig.getConfigurationSection("results_gui");
+                if (resultsConfig == null) return;
+                
+                // Results follow the new order, and every percentage changes with the total
+                ElectionResults results = getResults(menu.getRegionId(), roster);
+                List<Candidate> candidates = results.getCandidates();
+                boolean totalChanged = results.getTotalVotes() != totalVotes(menu.getShownRoster().getCandidates());
+                
+                for (int slot = 0; slot < candidates.size() && slot < inventory.getSize() - 9; slot++) {
+                    Candidate current = candidates.get(slot);
+                    Candidate shown = menu.getShownCandidate(slot);
+                    if (!totalChanged && shown != null && shown.getId() == current.getId() && shown.getVotes() == current.getVotes()) {
+                        continue;
+                    }
+                    
+                    inventory.setItem(slot, createResultItem(current, results, resultsConfig));
+                    menu.showCandidate(slot, current);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+    
+    private static int totalVotes(List<Candidate> candidates) {
+        return candidates.stream().mapToInt(Candidate::getVotes).sum();
+    }
+    
+    // Shared results of the region's election, computed here only for an empty menu
+    private ElectionResults getResults(String regionId, CandidateRoster roster) {
+        ElectionResults results = plugin.getElectionManager().getResults(regionId);
+        return results != null && results.isFor(roster) ? results : ElectionResults.of(roster);
+    }
+    
+    private CandidateRoster getCurrentRoster(String regionId) {
+        CandidateRoster roster = plugin.getElectionManager().getRoster(regionId);
+        return roster != null ? roster : NO_CANDIDATES;
+    }
+    
+    private RenderedPage getCandidatePage(CandidateRoster roster, int page, ViewerState state, ConfigurationSection votingConfig) {
+        return candidatePages.getPage(roster, page, state,
+            plugin.getConfigManager().getVersion(), skullProfiles.getTextureVersion(),
+            (candidate, viewerState) -> createCandidateItem(candidate,
+                viewerState == ViewerState.VOTED, viewerState == ViewerState.CAN_VOTE, votingConfig));
+    }
+    
+    private ElectionMenuHolder createMenu(MenuKind kind, String regionId, int page) {
+        int electionId = plugin.getElectionManager().isElectionActive(regionId)
+            ? plugin.getElectionManager().getElection(regionId).getId()
+            : -1;
+        return new ElectionMenuHolder(kind, regionId, page, electionId);
+    }
+    
+    /**
+     * Compiled menu of a gui.yml section, null when the section is missing.
+     * All templates are rebuilt after the configs are reloaded.
+     */
+    private MenuTemplate getTemplate(String section) {
+        int configVersion = plugin.getConfigManager().getVersion();
+        if (templatesVersion != configVersion) {
+            templates.clear();
+            templatesVersion = configVersion;
+        }
+        
+        MenuTemplate template = templates.get(section);
+        if (template == null) {
+            template = compileTemplate(section);
+            if (template != null) {
+                templates.put(section, template);
+            }
+        }
+        return template;
+    }
+    
+    private MenuTemplate compileTemplate(String section) {
+        ConfigurationSection menuConfig = plugin.getConfigManager().getConfig("gui.yml").getConfigurationSection(section);
+        if (menuConfig == null) return null;
+        
+        Map<String, ElectionManager.RoleData> roles = section.equals("registration_form")
+            ? plugin.getElectionManager().getRoleData()
+            : Map.of();
+        
+        Function<String, SlotAction> actions;
+        String defaultTitle;
+        int defaultSize;
+        switch (section) {
+            case "main_menu":
+                actions = key -> MAIN_MENU_ACTIONS.containsKey(key) ? SlotAction.of(MAIN_MENU_ACTIONS.get(key)) : null;
+                defaultTitle = "Volby";
+                defaultSize = 27;
+                break;
+            case "registration_form":
+                actions = key -> registrationAction(key, roles);
+                defaultTitle = "Registrace";
+                defaultSize = 45;
+                break;
+            case "voting_gui":
+                actions = this::votingAction;
+                defaultTitle = "Hlasování";
+                defaultSize = 54;
+                break;
+            default:
+                actions = key -> null;
+                defaultTitle = "Volby";
+                defaultSize = 27;
+                break;
+        }
+        
+        MenuTemplate.Builder builder = new MenuTemplate.Builder(
+            TextTemplate.of(menuConfig.getString("title", defaultTitle)), menuConfig.getInt("size", defaultSize));
+        
+        ConfigurationSection itemsConfig = menuConfig.getConfigurationSection("items");
+        if (itemsConfig != null) {
+            for (String itemKey : itemsConfig.getKeys(false)) {
+                ConfigurationSection itemConfig = itemsConfig.getConfigurationSection(itemKey);
+                // Items without a slot are per-candidate templates, rendered on open
+                if (itemConfig == null || !itemConfig.contains("slot")) {
+                    continue;
+                }
+                
+                ItemStack item;
+                try {
+                    item = createGuiItem(itemConfig);
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().log(Level.WARNING, "Invalid material of GUI item " + section + "." + itemKey, e);
+                    continue;
+                }
+                
+                // Add role description if it's a role item
+                ElectionManager.RoleData roleData = roles.get(itemKey);
+                if (roleData != null) {
+                    ItemMeta meta = item.getItemMeta();
+                    if (meta != null) {
+                        List<String> lore = meta.getLore();
+                        if (lore == null) lore = new ArrayList<>();
+                        lore.add("");
+                        lore.add(colorize("&7" + roleData.getDescription()));
+                        meta.setLore(lore);
+                        item.setItemMeta(meta);
+                    }
+                }
+                
+                builder.item(itemKey, itemConfig.getInt("slot"), item, actions.apply(itemKey));
+            }
+        }
+        
+        return builder.build();
+    }
+    
+    private SlotAction registrationAction(String itemKey, Map<String, ElectionManager.RoleData> roles) {
+        if (roles.containsKey(itemKey)) {
+            return SlotAction.role(itemKey);
+        } else if (itemKey.equals("confirm")) {
+            return SlotAction.of(MenuAction.CONFIRM_REGISTRATION);
+        } else if (itemKey.equals("cancel") || itemKey.equals("close")) {
+            return SlotAction.of(MenuAction.BACK);
+        }
+        return null;
+    }
+    
+    private SlotAction votingAction(String itemKey) {
+        switch (itemKey) {
+            case "previous_page":
+                return SlotAction.of(MenuAction.PREVIOUS_PAGE);
+            case "next_page":
+                return SlotAction.of(MenuAction.NEXT_PAGE);
+            case "close":
+                return SlotAction.of(MenuAction.BACK);
+            default:
+                return null;
+        }
     }
     
     private ItemStack createGuiItem(ConfigurationSection config) {
@@ -237,14 +411,14 @@ public class GuiManager {
         if (meta != null) {
             String name = config.getString("name");
             if (name != null) {
-                meta.setDisplayName(colorize(name));
+                meta.setDisplayName(TextTemplate.of(name).render());
             }
             
             List<String> lore = config.getStringList("lore");
             if (!lore.isEmpty()) {
                 List<String> colorizedLore = new ArrayList<>();
                 for (String line : lore) {
-                    colorizedLore.add(colorize(line));
+                    colorizedLore.add(TextTemplate.of(line).render());
                 }
                 meta.setLore(colorizedLore);
             }
@@ -260,8 +434,8 @@ public class GuiManager {
         SkullMeta meta = (SkullMeta) item.getItemMeta();
         
         if (meta != null) {
-            // Set player head
-            meta.setOwningPlayer(Bukkit.getOfflinePlayer(candidate.getPlayerName()));
+            // Cached texture, or a placeholder swapped in once the profile resolves
+            skullProfiles.applyTo(meta, UUID.fromString(candidate.getPlayerUuid()), candidate.getPlayerName());
             
             // Set name and lore  
             ConfigurationSection itemConfig;
@@ -277,24 +451,25 @@ public class GuiManager {
                 itemConfig = config.getConfigurationSection("candidate");
             }
             
+            String[] placeholders = candidatePlaceholders(candidate, null);
+            
             // Always set a name, even if config is missing
             String name;
             if (itemConfig != null && itemConfig.getString("name") != null) {
-                name = itemConfig.getString("name", "Kandidát %player%")
-                    .replace("%player%", candidate.getPlayerName());
+                name = TextTemplate.of(itemConfig.getString("name")).render(placeholders);
             } else {
                 // Fallback name format
-                name = "Kandidát " + candidate.getPlayerName();
+                name = TextTemplate.of("Kandidát %player%").render(placeholders);
             }
             
             // If voting is disabled but we don't have a special template, modify the name
             if (!canVote && !hasVoted && (itemConfig == null || itemConfig == config.getConfigurationSection("candidate"))) {
-                name = name + " &8(Hlasování není aktivní)";
+                name = name + TextTemplate.of(" &8(Hlasování není aktivní)").render();
             } else if (hasVoted) {
-                name = name + " &a(Hlasovali jste)";
+                name = name + TextTemplate.of(" &a(Hlasovali jste)").render();
             }
             
-            meta.setDisplayName(colorize(name));
+            meta.setDisplayName(name);
             
             // Always create lore with candidate information
             List<String> lore = new ArrayList<>();
@@ -302,24 +477,20 @@ public class GuiManager {
             // If we have config lore, use it and replace placeholders
             if (itemConfig != null && itemConfig.getStringList("lore") != null && !itemConfig.getStringList("lore").isEmpty()) {
                 for (String line : itemConfig.getStringList("lore")) {
-                    lore.add(colorize(line
-                        .replace("%player%", candidate.getPlayerName())
-                        .replace("%role%", candidate.getRole() != null ? candidate.getRole() : "Neuvedeno")
-                        .replace("%slogan%", candidate.getSlogan() != null ? candidate.getSlogan() : "Žádný slogan")
-                        .replace("%votes%", String.valueOf(candidate.getVotes()))));
+                    lore.add(TextTemplate.of(line).render(placeholders));
                 }
             } else {
                 // Fallback lore if config is missing or empty
-                lore.add(colorize("&7Role: &f" + (candidate.getRole() != null ? candidate.getRole() : "Neuvedeno")));
-                lore.add(colorize("&7Slogan: &f" + (candidate.getSlogan() != null ? candidate.getSlogan() : "Žádný slogan")));
-                lore.add(colorize("&7Hlasy: &f" + candidate.getVotes()));
+                lore.add(TextTemplate.of("&7Role: &f%role%").render(placeholders));
+                lore.add(TextTemplate.of("&7Slogan: &f%slogan%").render(placeholders));
+                lore.add(TextTemplate.of("&7Hlasy: &f%votes%").render(placeholders));
                 lore.add("");
                 if (canVote && !hasVoted) {
-                    lore.add(colorize("&aKlikněte pro hlasování"));
+                    lore.add(TextTemplate.of("&aKlikněte pro hlasování").render());
                 } else if (hasVoted) {
-                    lore.add(colorize("&aJiž jste hlasovali"));
+                    lore.add(TextTemplate.of("&aJiž jste hlasovali").render());
                 } else {
-                    lore.add(colorize("&8Hlasování momentálně není aktivní"));
+                    lore.add(TextTemplate.of("&8Hlasování momentálně není aktivní").render());
                 }
             }
             
@@ -330,37 +501,35 @@ public class GuiManager {
         return item;
     }
     
-    private ItemStack createResultItem(Candidate candidate, boolean isWinner, ConfigurationSection config) {
+    private ItemStack createResultItem(Candidate candidate, ElectionResults results, ConfigurationSection config) {
+        boolean isWinner = results.isWinner(candidate);
         ItemStack item = new ItemStack(Material.PLAYER_HEAD);
         SkullMeta meta = (SkullMeta) item.getItemMeta();
         
         if (meta != null) {
-            // Set player head
-            meta.setOwningPlayer(Bukkit.getOfflinePlayer(candidate.getPlayerName()));
+            // Cached texture, or a placeholder swapped in once the profile resolves
+            skullProfiles.applyTo(meta, UUID.fromString(candidate.getPlayerUuid()), candidate.getPlayerName());
             
             ConfigurationSection itemConfig = isWinner ? 
                 config.getConfigurationSection("winner") : 
                 config.getConfigurationSection("candidate_result");
             
-            // Calculate percentage
-            List<Candidate> allCandidates = plugin.getElectionManager().getCandidates();
-            int totalVotes = allCandidates.stream().mapToInt(Candidate::getVotes).sum();
-            double percentage = totalVotes > 0 ? (double) candidate.getVotes() / totalVotes * 100 : 0;
+            double percentage = results.getPercentage(candidate);
+            String[] placeholders = candidatePlaceholders(candidate, String.format("%.1f", percentage));
             
             // Always set a name, even if config is missing
             String name;
             if (itemConfig != null && itemConfig.getString("name") != null) {
-                name = itemConfig.getString("name", "%player%")
-                    .replace("%player%", candidate.getPlayerName());
+                name = TextTemplate.of(itemConfig.getString("name")).render(placeholders);
             } else {
                 // Fallback name format
                 if (isWinner) {
-                    name = "&6&l🏆 Vítěz: " + candidate.getPlayerName();
+                    name = TextTemplate.of("&6&l🏆 Vítěz: %player%").render(placeholders);
                 } else {
-                    name = "&e" + candidate.getPlayerName();
+                    name = TextTemplate.of("&e%player%").render(placeholders);
                 }
             }
-            meta.setDisplayName(colorize(name));
+            meta.setDisplayName(name);
             
             // Always create lore with candidate information
             List<String> lore = new ArrayList<>();
@@ -368,21 +537,16 @@ public class GuiManager {
             // If we have config lore, use it and replace placeholders
             if (itemConfig != null && itemConfig.getStringList("lore") != null && !itemConfig.getStringList("lore").isEmpty()) {
                 for (String line : itemConfig.getStringList("lore")) {
-                    lore.add(colorize(line
-                        .replace("%player%", candidate.getPlayerName())
-                        .replace("%role%", candidate.getRole() != null ? candidate.getRole() : "Neuvedeno")
-                        .replace("%slogan%", candidate.getSlogan() != null ? candidate.getSlogan() : "Žádný slogan")
-                        .replace("%votes%", String.valueOf(candidate.getVotes()))
-                        .replace("%percentage%", String.format("%.1f", percentage))));
+                    lore.add(TextTemplate.of(line).render(placeholders));
                 }
             } else {
                 // Fallback lore if config is missing or empty
-                lore.add(colorize("&7Role: &f" + (candidate.getRole() != null ? candidate.getRole() : "Neuvedeno")));
-                lore.add(colorize("&7Slogan: &f" + (candidate.getSlogan() != null ? candidate.getSlogan() : "Žádný slogan")));
-                lore.add(colorize("&7Hlasů: &f" + candidate.getVotes() + " (" + String.format("%.1f", percentage) + "%%)"));
+                lore.add(TextTemplate.of("&7Role: &f%role%").render(placeholders));
+                lore.add(TextTemplate.of("&7Slogan: &f%slogan%").render(placeholders));
+                lore.add(TextTemplate.of("&7Hlasů: &f%votes% (%percentage%%)").render(placeholders));
                 if (isWinner) {
                     lore.add("");
-                    lore.add(colorize("&6Vítěz voleb!"));
+                    lore.add(TextTemplate.of("&6Vítěz voleb!").render());
                 }
             }
             
@@ -393,30 +557,18 @@ public class GuiManager {
         return item;
     }
     
+    // Placeholder values of a candidate item, the percentage only exists in results
+    private static String[] candidatePlaceholders(Candidate candidate, String percentage) {
+        return new String[] {
+            "player", candidate.getPlayerName(),
+            "role", candidate.getRole() != null ? candidate.getRole() : "Neuvedeno",
+            "slogan", candidate.getSlogan() != null ? candidate.getSlogan() : "Žádný slogan",
+            "votes", String.valueOf(candidate.getVotes()),
+            "percentage", percentage
+        };
+    }
+    
     private String colorize(String text) {
-        // Simple color code replacement that definitely works
-        if (text == null) return "";
-        return text.replace("&0", "§0")
-                  .replace("&1", "§1")
-                  .replace("&2", "§2")
-                  .replace("&3", "§3")
-                  .replace("&4", "§4")
-                  .replace("&5", "§5")
-                  .replace("&6", "§6")
-                  .replace("&7", "§7")
-                  .replace("&8", "§8")
-                  .replace("&9", "§9")
-                  .replace("&a", "§a")
-                  .replace("&b", "§b")
-                  .replace("&c", "§c")
-                  .replace("&d", "§d")
-                  .replace("&e", "§e")
-                  .replace("&f", "§f")
-                  .replace("&k", "§k")
-                  .replace("&l", "§l")
-                  .replace("&m", "§m")
-                  .replace("&n", "§n")
-                  .replace("&o", "§o")
-                  .replace("&r", "§r");
+        return TextTemplate.colorize(text);
     }
 }
@@ -0,0 +1,107 @@
+package cz.domca.elections.gui;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.scheduler.BukkitTask;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.elections.CandidateRoster;
+
+/**
+ * Keeps vote counts in open candidate and result menus current.
+ * Menus subscribe when they are opened. At most once per configured interval
+ * every menu rendered from an older roster snapshot is handed to the refresher,
+ * which only rewrites the heads whose counts changed. The timer only runs while
+ * some menu is subscribed and is re-armed when the configuration is reloaded.
+ * Main-thread only.
+ */
+final class LiveMenuUpdater {
+    
+    interface Refresher {
+        void refresh(ElectionMenuHolder menu, CandidateRoster roster);
+    }
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final Refresher refresher;
+    private final Set<ElectionMenuHolder> menus = Collections.newSetFromMap(new IdentityHashMap<>());
+    private BukkitTask task;
+    
+    LiveMenuUpdater(WeeklyElectionsPlugin plugin, Refresher refresher) {
+        this.plugin = plugin;
+        this.refresher = refresher;
+    }
+    
+    void subscribe(ElectionMenuHolder menu) {
+        int interval = plugin.getConfigManager().getLiveUpdateInterval();
+        if (interval <= 0) {
+            return;
+        }
+        
+        menus.add(menu);
+        if (task == null) {
+            start(interval);
+        }
+    }
+    
+    /**
+     * Restart the timer with the current gui.live_update_interval, called after a reload.
+     * Subscribed menus stop updating when live updates were turned off.
+     */
+    void reschedule() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        
+        int interval = plugin.getConfigManager().getLiveUpdateInterval();
+        if (interval <= 0) {
+            menus.clear();
+        } else if (!menus.isEmpty()) {
+            start(interval);
+        }
+    }
+    
+    void shutdown() {
+        menus.clear();
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    private void start(int interval) {
+        long ticks = interval * 20L;
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::update, ticks, ticks);
+    }
+    
+    private void update() {
+        Iterator<ElectionMenuHolder> iterator = menus.iterator();
+        while (iterator.hasNext()) {
+            ElectionMenuHolder menu = iterator.next();
+            Inventory inventory = menu.getInventory();
+            // Closed menus are dropped here instead of tracking close events
+            if (inventory == null || inventory.getViewers().isEmpty()) {
+                iterator.remove();
+                continue;
+            }
+            
+            // A menu of a finished election keeps its final counts
+            CandidateRoster roster = plugin.getElectionManager().getRoster(menu.getRegionId());
+            if (roster == null || roster == menu.getShownRoster() || roster.getElectionId() != menu.getElectionId()) {
+                continue;
+            }
+            
+            refresher.refresh(menu, roster);
+            menu.setShownRoster(roster);
+        }
+        
+        if (menus.isEmpty()) {
+            task.cancel();
+            task = null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cz.domca.elections.gui;
+
+/**
+ * What a click on a menu slot does. Bound per slot when a menu is built.
+ */
+public enum MenuAction {
+    REGISTER,
+    VIEW_CANDIDATES,
+    OPEN_VOTING,
+    OPEN_RESULTS,
+    SELECT_ROLE,
+    CONFIRM_REGISTRATION,
+    PREVIOUS_PAGE,
+    NEXT_PAGE,
+    VOTE,
+    CANDIDATE_INFO,
+    BACK,
+    CLOSE
+}
@@ -0,0 +1,97 @@
+package cz.domca.elections.gui;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import cz.domca.elections.gui.ElectionMenuHolder.SlotAction;
+import cz.domca.elections.util.TextTemplate;
+
+/**
+ * Static part of a menu compiled from gui.yml: the buttons with a fixed slot
+ * and the actions bound to them. Opening a menu copies clones of the prebuilt
+ * items into the new inventory, the template itself is never modified.
+ */
+final class MenuTemplate {
+    
+    private final TextTemplate title;
+    private final int size;
+    private final ItemStack[] items;
+    private final SlotAction[] actions;
+    private final Map<String, Integer> slots;
+    
+    private MenuTemplate(TextTemplate title, int size, ItemStack[] items, SlotAction[] actions, Map<String, Integer> slots) {
+        this.title = title;
+        this.size = size;
+        this.items = items;
+        this.actions = actions;
+        this.slots = slots;
+    }
+    
+    /**
+     * Title, rendered by the caller with the menu's placeholders.
+     */
+    TextTemplate getTitle() {
+        return title;
+    }
+    
+    /**
+     * Create the menu's inventory filled with the template items.
+     */
+    Inventory createInventory(ElectionMenuHolder menu, String title) {
+        Inventory inventory = menu.createInventory(size, title);
+        
+        ItemStack[] contents = new ItemStack[size];
+        for (int slot = 0; slot < size; slot++) {
+            if (items[slot] != null) {
+                contents[slot] = items[slot].clone();
+            }
+            if (actions[slot] != null) {
+                menu.bind(slot, actions[slot]);
+            }
+        }
+        inventory.setContents(contents);
+        return inventory;
+    }
+    
+    /**
+     * Remove a button that does not apply to this particular open.
+     */
+    void hide(Inventory inventory, ElectionMenuHolder menu, String key) {
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            inventory.setItem(slot, null);
+            menu.bind(slot, null);
+        }
+    }
+    
+    static class Builder {
+        private final TextTemplate title;
+        private final int size;
+        private final ItemStack[] items;
+        private final SlotAction[] actions;
+        private final Map<String, Integer> slots = new HashMap<>();
+        
+        Builder(TextTemplate title, int size) {
+            this.title = title;
+            this.size = size;
+            this.items = new ItemStack[size];
+            this.actions = new SlotAction[size];
+        }
+        
+        Builder item(String key, int slot, ItemStack item, SlotAction action) {
+            if (slot >= 0 && slot < size) {
+                items[slot] = item;
+                actions[slot] = action;
+                slots.put(key, slot);
+            }
+            return this;
+        }
+        
+        MenuTemplate build() {
+            return new MenuTemplate(title, size, items, actions, Map.copyOf(slots));
+        }
+    }
+}
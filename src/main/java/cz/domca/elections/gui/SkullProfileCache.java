@@ -0,0 +1,269 @@
+package cz.domca.elections.gui;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import com.destroystokyo.paper.profile.ProfileProperty;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.database.StorageBackend;
+import cz.domca.elections.elections.Candidate;
+import cz.domca.elections.elections.Election;
+
+/**
+ * Head textures of candidates keyed by their UUID.
+ * Profiles are completed on a background thread and stored in the head_textures
+ * table, so menus never wait for a Mojang lookup. A head without a known texture
+ * is rendered with a placeholder profile and swapped in every open election menu
+ * once its texture arrives. A lookup that failed or found no texture is not
+ * repeated for a while, so menu renders do not keep queueing it. All state is
+ * main-thread only.
+ */
+public class SkullProfileCache {
+    
+    private static final String TEXTURES = "textures";
+    // Skins change, stored textures older than this are refreshed in the background
+    private static final long REFRESH_AFTER_SECONDS = 7L * 24 * 60 * 60;
+    // Failed lookups (offline mode, unknown player, rate limit) are retried after this
+    private static final long RETRY_FAILED_AFTER_SECONDS = 10L * 60;
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final Map<UUID, Texture> textures = new HashMap<>();
+    private final Set<UUID> resolving = new HashSet<>();
+    // Epoch second before which a failed lookup is not retried
+    private final Map<UUID, Long> retryAfter = new HashMap<>();
+    private int textureVersion;
+    private final ExecutorService resolver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WeeklyElections-Profiles");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public SkullProfileCache(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Load stored textures, then resolve the current candidates that have none.
+     */
+    public void load() {
+        plugin.getDatabaseManager().readAsync(conn -> {
+            Map<UUID, Texture> loaded = new HashMap<>();
+            String query = "SELECT player_uuid, texture_value, texture_signature, updated_at FROM head_textures";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    loaded.put(UUID.fromString(rs.getString("player_uuid")), new Texture(
+                        rs.getString("texture_value"),
+                        rs.getString("texture_signature"),
+                        rs.getLong("updated_at")));
+                }
+            }
+            return loaded;
+        }).whenComplete((loaded, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load head textures", error);
+                return;
+            }
+            
+            loaded.forEach(textures::putIfAbsent);
+            for (Election election : plugin.getElectionManager().getElections()) {
+                for (Candidate candidate : plugin.getElectionManager().getCandidates(election.getRegionId())) {
+                    prefetch(UUID.fromString(candidate.getPlayerUuid()), candidate.getPlayerName());
+                }
+            }
+        });
+    }
+    
+    public void shutdown() {
+        resolver.shutdownNow();
+    }
+    
+    /**
+     * Incremented whenever a texture changes, items rendered before are outdated.
+     */
+    public int getTextureVersion() {
+        return textureVersion;
+    }
+    
+    /**
+     * Resolve the texture of a player ahead of the first menu showing their head.
+     */
+    public void prefetch(UUID uuid, String name) {
+        Texture texture = textures.get(uuid);
+        if (texture == null || texture.isStale()) {
+            resolve(uuid, name);
+        }
+    }
+    
+    /**
+     * Put the player's head on the skull. Without a cached texture a placeholder
+     * profile is used and the texture is requested.
+     */
+    public void applyTo(SkullMeta meta, UUID uuid, String name) {
+        PlayerProfile profile = Bukkit.createProfile(uuid, name);
+        Texture texture = textures.get(uuid);
+        if (texture != null) {
+            profile.setProperty(texture.toProperty());
+        }
+        meta.setPlayerProfile(profile);
+        
+        if (texture == null || texture.isStale()) {
+            resolve(uuid, name);
+        }
+    }
+    
+    private void resolve(UUID uuid, String name) {
+        Long retryAt = retryAfter.get(uuid);
+        if (retryAt != null) {
+            if (Instant.now().getEpochSecond() < retryAt) {
+                return;
+            }
+            retryAfter.remove(uuid);
+        }
+        if (!resolving.add(uuid)) {
+            return;
+        }
+        
+        try {
+            resolver.execute(() -> {
+                Texture texture = null;
+                try {
+                    PlayerProfile profile = Bukkit.createProfile(uuid, name);
+                    if (profile.complete(true)) {
+                        texture = readTexture(profile);
+                    }
+                } catch (RuntimeException e) {
+                    plugin.getLogger().log(Level.FINE, "Failed to resolve profile of " + name, e);
+                }
+                
+                Texture resolved = texture;
+                if (plugin.isEnabled()) {
+                    plugin.getServer().getScheduler().runTask(plugin, () -> onResolved(uuid, name, resolved));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            resolving.remove(uuid);
+        }
+    }
+    
+    private void onResolved(UUID uuid, String name, Texture texture) {
+        resolving.remove(uuid);
+        if (texture == null) {
+            // Keep showing the placeholder or the previous texture, a render after the back-off retries
+            retryAfter.put(uuid, Instant.now().getEpochSecond() + RETRY_FAILED_AFTER_SECONDS);
+            return;
+        }
+        
+        Texture previous = textures.put(uuid, texture);
+        save(uuid, name, texture);
+        if (previous == null || !previous.value.equals(texture.value)) {
+            textureVersion++;
+            refreshOpenMenus(uuid, texture);
+        }
+    }
+    
+    private void save(UUID uuid, String name, Texture texture) {
+        StorageBackend backend = plugin.getDatabaseManager().getBackend();
+        String query = """
+            INSERT INTO head_textures (player_uuid, player_name, texture_value, texture_signature, updated_at)
+            VALUES (?, ?, ?, ?, ?)
+            %s
+            """.formatted(backend.upsert("player_uuid", String.join(", ",
+                "player_name = " + backend.excluded("player_name"),
+                "texture_value = " + backend.excluded("texture_value"),
+                "texture_signature = " + backend.excluded("texture_signature"),
+                "updated_at = " + backend.excluded("updated_at"))));
+        
+        plugin.getDatabaseManager().runAsync(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, uuid.toString());
+                stmt.setString(2, name);
+                stmt.setString(3, texture.value);
+                stmt.setString(4, texture.signature);
+                stmt.setLong(5, texture.updatedAt);
+                stmt.executeUpdate();
+            }
+        }).exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to store head texture of " + name, error);
+            return null;
+        });
+    }
+    
+    // Swap the placeholder heads of this player in every election menu that is open
+    private void refreshOpenMenus(UUID uuid, Texture texture) {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            Inventory inventory = player.getOpenInventory().getTopInventory();
+            if (!(inventory.getHolder(false) instanceof ElectionMenuHolder)) {
+                continue;
+            }
+            
+            for (int slot = 0; slot < inventory.getSize(); slot++) {
+                ItemStack item = inventory.getItem(slot);
+                if (item == null || item.getType() != Material.PLAYER_HEAD) {
+                    continue;
+                }
+                
+                SkullMeta meta = (SkullMeta) item.getItemMeta();
+                PlayerProfile profile = meta != null ? meta.getPlayerProfile() : null;
+                if (profile == null || !uuid.equals(profile.getId())) {
+                    continue;
+                }
+                
+                profile.setProperty(texture.toProperty());
+                meta.setPlayerProfile(profile);
+                item.setItemMeta(meta);
+                inventory.setItem(slot, item);
+            }
+        }
+    }
+    
+    private static Texture readTexture(PlayerProfile profile) {
+        for (ProfileProperty property : profile.getProperties()) {
+            if (TEXTURES.equals(property.getName())) {
+                return new Texture(property.getValue(), property.getSignature(), Instant.now().getEpochSecond());
+            }
+        }
+        return null;
+    }
+    
+    private static class Texture {
+        final String value;
+        final String signature;
+        final long updatedAt;
+        
+        Texture(String value, String signature, long updatedAt) {
+            this.value = value;
+            this.signature = signature;
+            this.updatedAt = updatedAt;
+        }
+        
+        boolean isStale() {
+            return Instant.now().getEpochSecond() - updatedAt > REFRESH_AFTER_SECONDS;
+        }
+        
+        ProfileProperty toProperty() {
+            return signature != null
+                ? new ProfileProperty(TEXTURES, value, signature)
+                : new ProfileProperty(TEXTURES, value);
+        }
+    }
+}
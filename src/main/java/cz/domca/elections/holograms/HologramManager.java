@@ -6,6 +6,7 @@ import java.util.Map;
 import org.bukkit.Location;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.util.TextTemplate;
 
 public class HologramManager {
     
@@ -151,28 +152,6 @@ public class HologramManager {
     }
     
     private String colorize(String text) {
-        if (text == null) return "";
-        return text.replace("&0", "§0")
-                  .replace("&1", "§1")
-                  .replace("&2", "§2")
-                  .replace("&3", "§3")
-                  .replace("&4", "§4")
-                  .replace("&5", "§5")
-                  .replace("&6", "§6")
-                  .replace("&7", "§7")
-                  .replace("&8", "§8")
-                  .replace("&9", "§9")
-                  .replace("&a", "§a")
-                  .replace("&b", "§b")
-                  .replace("&c", "§c")
-                  .replace("&d", "§d")
-                  .replace("&e", "§e")
-                  .replace("&f", "§f")
-                  .replace("&k", "§k")
-                  .replace("&l", "§l")
-                  .replace("&m", "§m")
-                  .replace("&n", "§n")
-                  .replace("&o", "§o")
-                  .replace("&r", "§r");
+        return TextTemplate.colorize(text);
     }
 }
@@ -0,0 +1,63 @@
+package cz.domca.elections.listeners;
+
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+
+/**
+ * Feeds player positions to the RegionManager so the current region of every
+ * online player is always known without a lookup.
+ */
+public class RegionListener implements Listener {
+    
+    private final WeeklyElectionsPlugin plugin;
+    
+    public RegionListener(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getRegionManager().updatePlayerRegion(event.getPlayer(), event.getPlayer().getLocation());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        // Most move events are only head rotation or movement within a block
+        if (to == null || (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY() && from.getBlockZ() == to.getBlockZ())) {
+            return;
+        }
+        plugin.getRegionManager().updatePlayerRegion(event.getPlayer(), to);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        plugin.getRegionManager().updatePlayerRegion(event.getPlayer(), event.getTo());
+    }
+    
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        plugin.getRegionManager().updatePlayerRegion(event.getPlayer(), event.getPlayer().getLocation());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        plugin.getRegionManager().updatePlayerRegion(event.getPlayer(), event.getRespawnLocation());
+    }
+    
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getRegionManager().forgetPlayer(event.getPlayer());
+    }
+}
@@ -0,0 +1,101 @@
+package cz.domca.elections.luckperms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import net.luckperms.api.model.user.User;
+
+/**
+ * Non-blocking access to LuckPerms user data.
+ * Changes requested for the same user during one tick (or while a previous save
+ * of that user is still running) are applied together in a single modifyUser
+ * call, so LuckPerms loads and saves the user once. Returned futures always
+ * complete on the server main thread. All state is main-thread only.
+ */
+public class LuckPermsAdapter {
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final Map<UUID, PendingEdit> pending = new HashMap<>();
+    private final Set<UUID> inFlight = new HashSet<>();
+    
+    public LuckPermsAdapter(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Queue a change of the user's nodes. The future completes on the main thread
+     * once the change is saved, or exceptionally if LuckPerms failed.
+     */
+    public CompletableFuture<Void> modifyUser(UUID uuid, Consumer<User> change) {
+        PendingEdit edit = pending.get(uuid);
+        if (edit == null) {
+            edit = new PendingEdit();
+            pending.put(uuid, edit);
+            if (!inFlight.contains(uuid)) {
+                // Let the rest of this tick add its changes first
+                plugin.getServer().getScheduler().runTask(plugin, () -> flush(uuid));
+            }
+        }
+        edit.changes.add(change);
+        return edit.future;
+    }
+    
+    private void flush(UUID uuid) {
+        PendingEdit edit = pending.remove(uuid);
+        if (edit == null || inFlight.contains(uuid)) {
+            return;
+        }
+        
+        inFlight.add(uuid);
+        plugin.getLuckPerms().getUserManager().modifyUser(uuid, user -> {
+            for (Consumer<User> change : edit.changes) {
+                change.accept(user);
+            }
+        }).whenComplete((ignored, error) -> runOnMainThread(() -> {
+            inFlight.remove(uuid);
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to modify LuckPerms user " + uuid, error);
+                edit.future.completeExceptionally(error);
+            } else {
+                edit.future.complete(null);
+            }
+            
+            // Changes that arrived while this save was running
+            if (pending.containsKey(uuid)) {
+                flush(uuid);
+            }
+        }));
+    }
+    
+    /**
+     * Hand all queued changes to LuckPerms right away, used when the plugin is disabled.
+     */
+    public void shutdown() {
+        for (UUID uuid : new ArrayList<>(pending.keySet())) {
+            inFlight.remove(uuid);
+            flush(uuid);
+        }
+    }
+    
+    private void runOnMainThread(Runnable runnable) {
+        if (plugin.getServer().isPrimaryThread() || !plugin.isEnabled()) {
+            runnable.run();
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, runnable);
+        }
+    }
+    
+    private static class PendingEdit {
+        final List<Consumer<User>> changes = new ArrayList<>();
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+}
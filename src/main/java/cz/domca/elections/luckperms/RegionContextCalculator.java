@@ -0,0 +1,88 @@
+package cz.domca.elections.luckperms;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.regions.PlayerRegionChangeEvent;
+import net.luckperms.api.context.ContextCalculator;
+import net.luckperms.api.context.ContextConsumer;
+import net.luckperms.api.context.ContextSet;
+import net.luckperms.api.context.ImmutableContextSet;
+
+/**
+ * Supplies the "region" context that elected roles are granted with.
+ * LuckPerms asks for contexts on every permission check and possibly from its
+ * own threads, so the calculator only reads a concurrent copy of the regions
+ * tracked by RegionManager. The copy is updated from PlayerRegionChangeEvent,
+ * which also tells LuckPerms to recalculate the player's contexts.
+ */
+public class RegionContextCalculator implements ContextCalculator<Player>, Listener {
+    
+    public static final String CONTEXT_KEY = "region";
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final Map<UUID, String> playerRegions = new ConcurrentHashMap<>();
+    
+    public RegionContextCalculator(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    public void register() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            String region = plugin.getRegionManager().getPlayerRegion(player);
+            if (region != null) {
+                playerRegions.put(player.getUniqueId(), region);
+            }
+        }
+        
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        plugin.getLuckPerms().getContextManager().registerCalculator(this);
+    }
+    
+    public void unregister() {
+        plugin.getLuckPerms().getContextManager().unregisterCalculator(this);
+        HandlerList.unregisterAll(this);
+        playerRegions.clear();
+    }
+    
+    @Override
+    public void calculate(Player target, ContextConsumer consumer) {
+        String region = playerRegions.get(target.getUniqueId());
+        if (region != null) {
+            consumer.accept(CONTEXT_KEY, region);
+        }
+    }
+    
+    @Override
+    public ContextSet estimatePotentialContexts() {
+        ImmutableContextSet.Builder builder = ImmutableContextSet.builder();
+        for (String regionId : plugin.getRegionManager().getAllRegions().keySet()) {
+            builder.add(CONTEXT_KEY, regionId);
+        }
+        return builder.build();
+    }
+    
+    @EventHandler
+    public void onRegionChange(PlayerRegionChangeEvent event) {
+        Player player = event.getPlayer();
+        if (event.getNewRegion() != null) {
+            playerRegions.put(player.getUniqueId(), event.getNewRegion());
+        } else {
+            playerRegions.remove(player.getUniqueId());
+        }
+        plugin.getLuckPerms().getContextManager().signalContextUpdate(player);
+    }
+    
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        playerRegions.remove(event.getPlayer().getUniqueId());
+    }
+}
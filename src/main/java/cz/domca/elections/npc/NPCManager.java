@@ -34,6 +34,25 @@ public class NPCManager {
         this.pendingSaves = new ArrayList<>();
     }
     
+    private static class StoredNPC {
+        final String regionId;
+        final String world;
+        final double x, y, z;
+        final float yaw, pitch;
+        final int npcId;
+        
+        StoredNPC(String regionId, String world, double x, double y, double z, float yaw, float pitch, int npcId) {
+            this.regionId = regionId;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.npcId = npcId;
+        }
+    }
+    
     private static class PendingSave {
         String regionId;
         Location location;
@@ -60,78 +79,98 @@ public class NPCManager {
     }
     
     private void processPendingSaves() {
-        int saved = 0;
-        for (PendingSave pending : pendingSaves) {
-            if (saveNPCLocationWithRetry(pending.regionId, pending.location, pending.npcId)) {
-                saved++;
-            }
-        }
+        List<PendingSave> saves = new ArrayList<>(pendingSaves);
         pendingSaves.clear();
         
-        if (saved > 0) {
-            plugin.getLogger().info("Saved " + saved + " NPC locations from initialization");
-        }
+        plugin.getDatabaseManager().supplyAsync(conn -> {
+            int saved = 0;
+            for (PendingSave pending : saves) {
+                if (saveNPCLocationWithRetry(conn, pending.regionId, pending.location, pending.npcId)) {
+                    saved++;
+                }
+            }
+            return saved;
+        }).thenAccept(saved -> {
+            if (saved > 0) {
+                plugin.getLogger().info("Saved " + saved + " NPC locations from initialization");
+            }
+        });
     }
     
     private void loadExistingNPCs() {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
+        // Runs during plugin enable, before the server starts ticking
+        List<StoredNPC> storedNPCs = plugin.getDatabaseManager().supplyNow(conn -> {
+            List<StoredNPC> rows = new ArrayList<>();
             String query = "SELECT * FROM npc_locations";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 ResultSet rs = stmt.executeQuery();
                 
                 while (rs.next()) {
                     try {
-                        String regionId = rs.getString("region_id");
-                        int npcId = rs.getInt("npc_id");
-                        
-                        if (npcId > 0) {
-                            NPC npc = npcRegistry.getById(npcId);
-                            if (npc != null && npc.isSpawned()) {
-                                electionNPCs.put(regionId, npc);
-                                plugin.getLogger().info("Loaded existing NPC for region: " + regionId);
-                            } else {
-                                // NPC doesn't exist anymore, recreate it
-                                plugin.getLogger().warning("NPC " + npcId + " for region " + regionId + " not found, recreating...");
-                                recreateNPC(regionId, rs);
-                            }
-                        } else {
-                            // No NPC ID stored, try to recreate
-                            plugin.getLogger().info("No NPC ID for region " + regionId + ", recreating...");
-                            recreateNPC(regionId, rs);
-                        }
-                    } catch (Exception ex) {
-                        plugin.getLogger().log(Level.WARNING, "Failed to load NPC for region " + rs.getString("region_id") + ", skipping...", ex);
+                        rows.add(readStoredNPC(rs));
+                    } catch (SQLException ex) {
+                        plugin.getLogger().log(Level.WARNING, "Failed to read NPC data for region " + rs.getString("region_id") + ", skipping...", ex);
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load existing NPCs", e);
+            }
+            return rows;
+        });
+        
+        for (StoredNPC stored : storedNPCs) {
+            try {
+                String regionId = stored.regionId;
+                int npcId = stored.npcId;
+                
+                if (npcId > 0) {
+                    NPC npc = npcRegistry.getById(npcId);
+                    if (npc != null && npc.isSpawned()) {
+                        electionNPCs.put(regionId, npc);
+                        plugin.getLogger().info("Loaded existing NPC for region: " + regionId);
+                    } else {
+                        // NPC doesn't exist anymore, recreate it
+                        plugin.getLogger().warning("NPC " + npcId + " for region " + regionId + " not found, recreating...");
+                        recreateNPC(stored);
                     }
+                } else {
+                    // No NPC ID stored, try to recreate
+                    plugin.getLogger().info("No NPC ID for region " + regionId + ", recreating...");
+                    recreateNPC(stored);
                 }
+            } catch (Exception ex) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load NPC for region " + stored.regionId + ", skipping...", ex);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load existing NPCs", e);
         }
     }
     
-    private void recreateNPC(String regionId, ResultSet rs) {
+    private StoredNPC readStoredNPC(ResultSet rs) throws SQLException {
+        return new StoredNPC(
+            rs.getString("region_id"),
+            rs.getString("world"),
+            rs.getDouble("x"),
+            rs.getDouble("y"),
+            rs.getDouble("z"),
+            rs.getFloat("yaw"),
+            rs.getFloat("pitch"),
+            rs.getInt("npc_id")
+        );
+    }
+    
+    private void recreateNPC(StoredNPC stored) {
         try {
-            String world = rs.getString("world");
-            double x = rs.getDouble("x");
-            double y = rs.getDouble("y");
-            double z = rs.getDouble("z");
-            float yaw = rs.getFloat("yaw");
-            float pitch = rs.getFloat("pitch");
-            
             Location location = new Location(
-                plugin.getServer().getWorld(world),
-                x, y, z, yaw, pitch
+                plugin.getServer().getWorld(stored.world),
+                stored.x, stored.y, stored.z, stored.yaw, stored.pitch
             );
             
             if (location.getWorld() != null) {
-                createNPC(regionId, location, true); // Pass true to indicate this is during initial load
+                createNPC(stored.regionId, location, true); // Pass true to indicate this is during initial load
             } else {
-                plugin.getLogger().warning("Cannot recreate NPC for region " + regionId + ": World " + world + " not loaded");
+                plugin.getLogger().warning("Cannot recreate NPC for region " + stored.regionId + ": World " + stored.world + " not loaded");
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to read NPC data for region " + regionId, e);
         } catch (Exception e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to recreate NPC for region " + regionId, e);
+            plugin.getLogger().log(Level.WARNING, "Failed to recreate NPC for region " + stored.regionId, e);
         }
     }
     
@@ -182,8 +221,10 @@ public class NPCManager {
                 // If called during initial load, defer the save
                 saveNPCLocation(regionId, location, npc.getId());
             } else {
-                // If called after initialization, save immediately with retry
-                saveNPCLocationWithRetry(regionId, location, npc.getId());
+                // If called after initialization, save right away (off the main thread) with retry
+                Location savedLocation = location.clone();
+                int npcId = npc.getId();
+                plugin.getDatabaseManager().runAsync(conn -> saveNPCLocationWithRetry(conn, regionId, savedLocation, npcId));
             }
             
             // Store in memory
@@ -207,31 +248,31 @@ public class NPCManager {
         pendingSaves.add(new PendingSave(regionId, location, npcId));
     }
     
-    private boolean saveNPCLocationWithRetry(String regionId, Location location, int npcId) {
+    private boolean saveNPCLocationWithRetry(Connection conn, String regionId, Location location, int npcId) {
         int attempts = 0;
         SQLException lastException = null;
         
         while (attempts < MAX_RETRY_ATTEMPTS) {
-            try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-                String query = "INSERT OR REPLACE INTO npc_locations (region_id, world, x, y, z, yaw, pitch, npc_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    stmt.setString(1, regionId);
-                    stmt.setString(2, location.getWorld().getName());
-                    stmt.setDouble(3, location.getX());
-                    stmt.setDouble(4, location.getY());
-                    stmt.setDouble(5, location.getZ());
-                    stmt.setFloat(6, location.getYaw());
-                    stmt.setFloat(7, location.getPitch());
-                    stmt.setInt(8, npcId);
-                    stmt.executeUpdate();
-                    return true; // Success
-                }
+            String query = plugin.getDatabaseManager().getBackend().insertOrReplace()
+                + " npc_locations (region_id, world, x, y, z, yaw, pitch, npc_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, "
+                + plugin.getDatabaseManager().getBackend().currentTime() + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, regionId);
+                stmt.setString(2, location.getWorld().getName());
+                stmt.setDouble(3, location.getX());
+                stmt.setDouble(4, location.getY());
+                stmt.setDouble(5, location.getZ());
+                stmt.setFloat(6, location.getYaw());
+                stmt.setFloat(7, location.getPitch());
+                stmt.setInt(8, npcId);
+                stmt.executeUpdate();
+                return true; // Success
             } catch (SQLException e) {
                 lastException = e;
                 attempts++;
                 
                 if (e.getMessage().contains("locked") && attempts < MAX_RETRY_ATTEMPTS) {
-                    // Database is locked, wait and retry
+                    // Database is locked, wait and retry (only blocks the database thread)
                     try {
                         Thread.sleep(RETRY_DELAY_MS * attempts); // Exponential backoff
                     } catch (InterruptedException ie) {
@@ -259,30 +300,47 @@ public class NPCManager {
     }
     
     public void fixMissingNPCs() {
-        int fixed = 0;
+        List<String> missingRegions = new ArrayList<>();
         for (String regionId : plugin.getRegionManager().getRegionRotation()) {
             if (!hasNPC(regionId)) {
-                // Try to recreate from database
-                try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-                    String query = "SELECT * FROM npc_locations WHERE region_id = ?";
-                    try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                        stmt.setString(1, regionId);
-                        ResultSet rs = stmt.executeQuery();
-                        
-                        if (rs.next()) {
-                            recreateNPC(regionId, rs);
-                            fixed++;
-                        }
+                missingRegions.add(regionId);
+            }
+        }
+        
+        if (missingRegions.isEmpty()) {
+            return;
+        }
+        
+        // Try to recreate from database
+        plugin.getDatabaseManager().supplyAsync(conn -> {
+            List<StoredNPC> rows = new ArrayList<>();
+            for (String regionId : missingRegions) {
+                String query = "SELECT * FROM npc_locations WHERE region_id = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, regionId);
+                    ResultSet rs = stmt.executeQuery();
+                    
+                    if (rs.next()) {
+                        rows.add(readStoredNPC(rs));
                     }
                 } catch (SQLException e) {
                     plugin.getLogger().log(Level.SEVERE, "Failed to fix NPC for region: " + regionId, e);
                 }
             }
-        }
-        
-        if (fixed > 0) {
-            plugin.getLogger().info("Fixed " + fixed + " missing NPCs");
-        }
+            return rows;
+        }).thenAccept(rows -> {
+            int fixed = 0;
+            for (StoredNPC stored : rows) {
+                if (!hasNPC(stored.regionId)) {
+                    recreateNPC(stored);
+                    fixed++;
+                }
+            }
+            
+            if (fixed > 0) {
+                plugin.getLogger().info("Fixed " + fixed + " missing NPCs");
+            }
+        });
     }
     
     public boolean removeNPC(String regionId) {
@@ -315,41 +373,38 @@ public class NPCManager {
         // Always remove from memory map
         electionNPCs.remove(regionId);
         
-        // Remove from database with retry logic
-        int attempts = 0;
-        SQLException lastException = null;
-        
-        while (attempts < MAX_RETRY_ATTEMPTS) {
-            try (Connection conn = plugin.getDatabaseManager().getConnection()) {
+        // Remove from database with retry logic, off the main thread
+        plugin.getDatabaseManager().runAsync(conn -> {
+            int attempts = 0;
+            SQLException lastException = null;
+            
+            while (attempts < MAX_RETRY_ATTEMPTS) {
                 String query = "DELETE FROM npc_locations WHERE region_id = ?";
                 try (PreparedStatement stmt = conn.prepareStatement(query)) {
                     stmt.setString(1, regionId);
-                    int deleted = stmt.executeUpdate();
-                    if (deleted > 0 || hadNPC) {
-                        success = true;
-                    }
-                    break; // Success
-                }
-            } catch (SQLException e) {
-                lastException = e;
-                attempts++;
-                
-                if (e.getMessage().contains("locked") && attempts < MAX_RETRY_ATTEMPTS) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * attempts);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                    stmt.executeUpdate();
+                    return; // Success
+                } catch (SQLException e) {
+                    lastException = e;
+                    attempts++;
+                    
+                    if (e.getMessage().contains("locked") && attempts < MAX_RETRY_ATTEMPTS) {
+                        try {
+                            Thread.sleep(RETRY_DELAY_MS * attempts);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    } else {
                         break;
                     }
-                } else {
-                    break;
                 }
             }
-        }
-        
-        if (lastException != null && attempts >= MAX_RETRY_ATTEMPTS) {
-            plugin.getLogger().log(Level.WARNING, "Failed to remove NPC from database after " + attempts + " attempts", lastException);
-        }
+            
+            if (lastException != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to remove NPC from database after " + attempts + " attempts", lastException);
+            }
+        });
         
         if (success || hadNPC) {
             plugin.getLogger().info("Removed NPC and hologram for region: " + regionId);
@@ -0,0 +1,49 @@
+package cz.domca.elections.regions;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Fired on the main thread when a player enters, leaves or moves between
+ * regions. A null previous region means the player entered from outside any
+ * region, a null new region means they left all regions.
+ */
+public class PlayerRegionChangeEvent extends PlayerEvent {
+    
+    private static final HandlerList HANDLERS = new HandlerList();
+    
+    private final String previousRegion;
+    private final String newRegion;
+    
+    public PlayerRegionChangeEvent(Player player, String previousRegion, String newRegion) {
+        super(player);
+        this.previousRegion = previousRegion;
+        this.newRegion = newRegion;
+    }
+    
+    public String getPreviousRegion() {
+        return previousRegion;
+    }
+    
+    public String getNewRegion() {
+        return newRegion;
+    }
+    
+    public boolean isEnter() {
+        return newRegion != null;
+    }
+    
+    public boolean isLeave() {
+        return previousRegion != null;
+    }
+    
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+    
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
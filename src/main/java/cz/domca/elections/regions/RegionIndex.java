@@ -0,0 +1,115 @@
+package cz.domca.elections.regions;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.World;
+
+import cz.domca.elections.regions.RegionManager.Region;
+import cz.domca.elections.regions.RegionManager.RegionBoundary;
+import cz.domca.elections.util.LongHashMap;
+
+/**
+ * Point lookup of regions, rebuilt whenever the regions are loaded.
+ * Every boundary is registered in each 256x256 block cell its bounding box
+ * touches, so a lookup is one primitive hash probe followed by exact checks of
+ * the few regions sharing that cell, ordered by priority. Cells this coarse
+ * keep the index small even for regions thousands of blocks wide. Worlds are
+ * matched by UID, the configured world name is compared only on the first
+ * lookup in a world.
+ */
+final class RegionIndex {
+    
+    // 256 blocks, 16 chunks
+    private static final int CELL_SHIFT = 8;
+    private static final LongHashMap<Region[]> EMPTY_WORLD = new LongHashMap<>(0);
+    
+    private final Map<String, LongHashMap<Region[]>> byWorldName = new HashMap<>();
+    // Lookups may come from other threads, e.g. LuckPerms context calculation
+    private final Map<UUID, LongHashMap<Region[]>> byWorldId = new ConcurrentHashMap<>();
+    
+    RegionIndex(Collection<Region> regions) {
+        for (Region region : regions) {
+            RegionBoundary boundary = region.getBoundary();
+            if (boundary == null) {
+                continue;
+            }
+            
+            LongHashMap<Region[]> cells = byWorldName.computeIfAbsent(boundary.getWorldName(), world -> new LongHashMap<>());
+            int minCellX = blockToCell(boundary.getMinX());
+            int maxCellX = blockToCell(boundary.getMaxX());
+            int minCellZ = blockToCell(boundary.getMinZ());
+            int maxCellZ = blockToCell(boundary.getMaxZ());
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                    long key = cellKey(cellX, cellZ);
+                    cells.put(key, insertByPriority(cells.get(key), region));
+                }
+            }
+        }
+    }
+    
+    // Overlapping regions: the highest priority is checked first, equal ones keep the config order
+    private static Region[] insertByPriority(Region[] candidates, Region region) {
+        if (candidates == null) {
+            return new Region[] {region};
+        }
+        
+        int index = 0;
+        while (index < candidates.length && candidates[index].getPriority() >= region.getPriority()) {
+            index++;
+        }
+        Region[] updated = new Region[candidates.length + 1];
+        System.arraycopy(candidates, 0, updated, 0, index);
+        updated[index] = region;
+        System.arraycopy(candidates, index, updated, index + 1, candidates.length - index);
+        return updated;
+    }
+    
+    /**
+     * Region containing the point, null if there is none.
+     */
+    Region getRegionAt(World world, double x, double y, double z) {
+        if (world == null) {
+            return null;
+        }
+        
+        Region[] candidates = getWorldCells(world).get(cellKey(blockToCell(x), blockToCell(z)));
+        if (candidates == null) {
+            return null;
+        }
+        for (Region region : candidates) {
+            if (region.getBoundary().contains(x, y, z)) {
+                return region;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Whether any region boundary reaches into the cell.
+     */
+    boolean hasRegions(World world, long cellKey) {
+        return getWorldCells(world).get(cellKey) != null;
+    }
+    
+    private LongHashMap<Region[]> getWorldCells(World world) {
+        LongHashMap<Region[]> cells = byWorldId.get(world.getUID());
+        if (cells == null) {
+            cells = byWorldName.getOrDefault(world.getName(), EMPTY_WORLD);
+            byWorldId.put(world.getUID(), cells);
+        }
+        return cells;
+    }
+    
+    static int blockToCell(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CELL_SHIFT;
+    }
+    
+    static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
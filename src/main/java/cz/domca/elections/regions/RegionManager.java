@@ -2,23 +2,33 @@ package cz.domca.elections.regions;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.util.UuidHashMap;
 
 public class RegionManager {
     
     private final WeeklyElectionsPlugin plugin;
     private final Map<String, Region> regions;
     private final List<String> regionRotation;
+    private volatile RegionIndex index = new RegionIndex(List.of());
+    // Current region of online players, main thread only
+    private final UuidHashMap<TrackedPlayer> trackedPlayers = new UuidHashMap<>();
     
     public RegionManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
-        this.regions = new HashMap<>();
+        // Config order decides between overlapping regions of the same priority
+        this.regions = new LinkedHashMap<>();
         this.regionRotation = new ArrayList<>();
     }
     
@@ -43,7 +53,12 @@ public class RegionManager {
                             double maxY = boundarySection.getDouble("max_y");
                             double maxZ = boundarySection.getDouble("max_z");
                             
-                            boundary = new RegionBoundary(world, minX, minY, minZ, maxX, maxY, maxZ);
+                            List<?> points = boundarySection.getList("points");
+                            if (points != null && points.size() >= 3) {
+                                boundary = readPolygon(regionId, world, minY, maxY, points);
+                            } else {
+                                boundary = new RegionBoundary(world, minX, minY, minZ, maxX, maxY, maxZ);
+                            }
                         }
                     }
                     
@@ -51,7 +66,8 @@ public class RegionManager {
                         regionId,
                         regionSection.getString("name"),
                         regionSection.getString("display_name"),
-                        boundary
+                        boundary,
+                        regionSection.getInt("priority", 0)
                     );
                     regions.put(regionId, region);
                 }
@@ -62,9 +78,37 @@ public class RegionManager {
         regionRotation.clear();
         regionRotation.addAll(rotationOrder);
         
+        index = new RegionIndex(regions.values());
+        
+        // Cached positions refer to the old boundaries
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            TrackedPlayer tracked = trackedPlayers.get(player.getUniqueId());
+            if (tracked != null) {
+                tracked.worldId = null;
+            }
+            updatePlayerRegion(player, player.getLocation());
+        }
+        
         plugin.getLogger().info("Loaded " + regions.size() + " regions");
     }
     
+    // Polygon corners as [x, z] pairs, the height comes from min_y/max_y
+    private RegionBoundary readPolygon(String regionId, String world, double minY, double maxY, List<?> points) {
+        double[] xs = new double[points.size()];
+        double[] zs = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            Object point = points.get(i);
+            if (!(point instanceof List) || ((List<?>) point).size() != 2
+                    || !(((List<?>) point).get(0) instanceof Number) || !(((List<?>) point).get(1) instanceof Number)) {
+                plugin.getLogger().warning("Invalid boundary point " + point + " in region " + regionId + ", expected [x, z]");
+                return null;
+            }
+            xs[i] = ((Number) ((List<?>) point).get(0)).doubleValue();
+            zs[i] = ((Number) ((List<?>) point).get(1)).doubleValue();
+        }
+        return new RegionBoundary(world, minY, maxY, xs, zs);
+    }
+    
     public Region getRegion(String regionId) {
         return regions.get(regionId);
     }
@@ -87,10 +131,21 @@ public class RegionManager {
         return regionRotation.get(nextIndex);
     }
     
-    public String getCurrentActiveRegion() {
-        // Get the region from current active election
-        if (plugin.getElectionManager() != null && plugin.getElectionManager().isElectionActive()) {
-            return plugin.getElectionManager().getCurrentElection().getRegionId();
+    /**
+     * Region whose election the player's menu opens: the one they stand in if it
+     * votes, otherwise the first voting region of the rotation.
+     */
+    public String getActiveRegion(Player player) {
+        if (plugin.getElectionManager() != null) {
+            String playerRegion = getPlayerRegion(player);
+            if (playerRegion != null && plugin.getElectionManager().isElectionActive(playerRegion)) {
+                return playerRegion;
+            }
+            for (String regionId : regionRotation) {
+                if (plugin.getElectionManager().isElectionActive(regionId)) {
+                    return regionId;
+                }
+            }
         }
         // If no active election, return the first region as fallback
         return regionRotation.isEmpty() ? null : regionRotation.get(0);
@@ -109,15 +164,80 @@ public class RegionManager {
     }
     
     /**
-     * Get the region that contains the given location
+     * Get the region that contains the given location. Where regions overlap the
+     * one with the highest priority wins.
      */
     public String getRegionAt(Location location) {
-        for (Region region : regions.values()) {
-            if (region.getBoundary() != null && region.getBoundary().contains(location)) {
-                return region.getId();
-            }
+        if (location == null) {
+            return null;
         }
-        return null; // No region found
+        
+        Region region = index.getRegionAt(location.getWorld(), location.getX(), location.getY(), location.getZ());
+        return region != null ? region.getId() : null;
+    }
+    
+    /**
+     * Region the player is in, as last tracked from their movement.
+     * Players that are not tracked yet are looked up and tracked from now on.
+     */
+    public String getPlayerRegion(Player player) {
+        TrackedPlayer tracked = trackedPlayers.get(player.getUniqueId());
+        if (tracked == null) {
+            return updatePlayerRegion(player, player.getLocation());
+        }
+        return tracked.regionId;
+    }
+    
+    /**
+     * Track the player's new location after a move, teleport or world change and
+     * fire a PlayerRegionChangeEvent if they entered or left a region.
+     * While the player stays in an index cell no region touches nothing is looked
+     * up until they cross into another cell; in cells with regions the lookup is
+     * repeated only when the block position changes.
+     */
+    public String updatePlayerRegion(Player player, Location location) {
+        UUID playerId = player.getUniqueId();
+        TrackedPlayer tracked = trackedPlayers.get(playerId);
+        World world = location != null ? location.getWorld() : null;
+        if (world == null) {
+            return tracked != null ? tracked.regionId : null;
+        }
+        
+        int blockX = location.getBlockX();
+        int blockY = location.getBlockY();
+        int blockZ = location.getBlockZ();
+        long cellKey = RegionIndex.cellKey(RegionIndex.blockToCell(blockX), RegionIndex.blockToCell(blockZ));
+        if (tracked == null) {
+            tracked = new TrackedPlayer();
+            trackedPlayers.put(playerId, tracked);
+        } else if (world.getUID().equals(tracked.worldId) && cellKey == tracked.cellKey
+                && (!tracked.cellHasRegions || (blockX == tracked.blockX && blockY == tracked.blockY && blockZ == tracked.blockZ))) {
+            return tracked.regionId;
+        }
+        
+        RegionIndex current = index;
+        Region region = current.getRegionAt(world, location.getX(), location.getY(), location.getZ());
+        String previousRegion = tracked.regionId;
+        
+        tracked.worldId = world.getUID();
+        tracked.cellKey = cellKey;
+        tracked.cellHasRegions = current.hasRegions(world, cellKey);
+        tracked.blockX = blockX;
+        tracked.blockY = blockY;
+        tracked.blockZ = blockZ;
+        tracked.regionId = region != null ? region.getId() : null;
+        
+        if (!Objects.equals(previousRegion, tracked.regionId)) {
+            plugin.getServer().getPluginManager().callEvent(new PlayerRegionChangeEvent(player, previousRegion, tracked.regionId));
+        }
+        return tracked.regionId;
+    }
+    
+    /**
+     * Stop tracking a player who left the server. No leave event is fired.
+     */
+    public void forgetPlayer(Player player) {
+        trackedPlayers.remove(player.getUniqueId());
     }
     
     /**
@@ -127,17 +247,39 @@ public class RegionManager {
         return isPlayerInRegion(playerLocation, regionId);
     }
     
+    /**
+     * Check if a player can use role abilities where they stand, from the tracked
+     * region. Where regions overlap only the one with the highest priority counts.
+     */
+    public boolean canUseRoleAbilities(Player player, String regionId) {
+        return regionId != null && regionId.equals(getPlayerRegion(player));
+    }
+    
+    private static class TrackedPlayer {
+        private UUID worldId;
+        private long cellKey;
+        private boolean cellHasRegions;
+        private int blockX, blockY, blockZ;
+        private String regionId;
+    }
+    
     public static class Region {
         private final String id;
         private final String name;
         private final String displayName;
         private final RegionBoundary boundary;
+        private final int priority;
         
         public Region(String id, String name, String displayName, RegionBoundary boundary) {
+            this(id, name, displayName, boundary, 0);
+        }
+        
+        public Region(String id, String name, String displayName, RegionBoundary boundary, int priority) {
             this.id = id;
             this.name = name;
             this.displayName = displayName;
             this.boundary = boundary;
+            this.priority = priority;
         }
         
         public String getId() {
@@ -159,12 +301,25 @@ public class RegionManager {
         public boolean hasBoundary() {
             return boundary != null;
         }
+        
+        /**
+         * Decides between overlapping regions, higher wins.
+         */
+        public int getPriority() {
+            return priority;
+        }
     }
     
+    /**
+     * A box, or a polygon in the x/z plane extruded between two heights.
+     * The min/max values of a polygon are its bounding box.
+     */
     public static class RegionBoundary {
         private final String worldName;
         private final double minX, minY, minZ;
         private final double maxX, maxY, maxZ;
+        private final double[] polygonX;
+        private final double[] polygonZ;
         
         public RegionBoundary(String worldName, double minX, double minY, double minZ, 
                             double maxX, double maxY, double maxZ) {
@@ -175,6 +330,29 @@ public class RegionManager {
             this.maxX = Math.max(minX, maxX);
             this.maxY = Math.max(minY, maxY);
             this.maxZ = Math.max(minZ, maxZ);
+            this.polygonX = null;
+            this.polygonZ = null;
+        }
+        
+        public RegionBoundary(String worldName, double minY, double maxY, double[] polygonX, double[] polygonZ) {
+            double minX = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+            for (int i = 0; i < polygonX.length; i++) {
+                minX = Math.min(minX, polygonX[i]);
+                maxX = Math.max(maxX, polygonX[i]);
+                minZ = Math.min(minZ, polygonZ[i]);
+                maxZ = Math.max(maxZ, polygonZ[i]);
+            }
+            
+            this.worldName = worldName;
+            this.minX = minX;
+            this.minY = Math.min(minY, maxY);
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = Math.max(minY, maxY);
+            this.maxZ = maxZ;
+            this.polygonX = polygonX.clone();
+            this.polygonZ = polygonZ.clone();
         }
         
         public boolean contains(Location location) {
@@ -186,13 +364,33 @@ public class RegionManager {
                 return false;
             }
             
-            double x = location.getX();
-            double y = location.getY();
-            double z = location.getZ();
-            
-            return x >= minX && x <= maxX && 
-                   y >= minY && y <= maxY && 
-                   z >= minZ && z <= maxZ;
+            return contains(location.getX(), location.getY(), location.getZ());
+        }
+        
+        /**
+         * Point check without the world, for callers that already matched it.
+         */
+        public boolean contains(double x, double y, double z) {
+            if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                return false;
+            }
+            return polygonX == null || polygonContains(x, z);
+        }
+        
+        // Even-odd rule: count the polygon edges crossed by a ray towards +x
+        private boolean polygonContains(double x, double z) {
+            boolean inside = false;
+            for (int i = 0, j = polygonX.length - 1; i < polygonX.length; j = i++) {
+                if ((polygonZ[i] > z) != (polygonZ[j] > z)
+                        && x < (polygonX[j] - polygonX[i]) * (z - polygonZ[i]) / (polygonZ[j] - polygonZ[i]) + polygonX[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+        
+        public boolean isPolygon() {
+            return polygonX != null;
         }
         
         public String getWorldName() {
@@ -49,7 +49,7 @@ public class CandidateRegistrationManager {
         }
         
         // Check if already registered
-        if (plugin.getElectionManager().isRegistered(player.getUniqueId().toString())) {
+        if (plugin.getElectionManager().isRegistered(regionId, player.getUniqueId())) {
             player.sendMessage(colorize("&cJste již registrován jako kandidát v těchto volbách!"));
             return;
         }
@@ -147,20 +147,21 @@ public class CandidateRegistrationManager {
         }
         
         // Register candidate
-        boolean success = plugin.getElectionManager().registerCandidate(
+        plugin.getElectionManager().registerCandidate(
+            data.getRegionId(),
             player.getUniqueId().toString(),
             player.getName(),
             data.getRole(),
             slogan
-        );
-        
-        if (success) {
-            player.sendMessage(colorize("&aÚspěšně jste se zaregistrovali jako kandidát!"));
-            player.sendMessage(colorize("&7Role: &e" + data.getRole()));
-            player.sendMessage(colorize("&7Slogan: &e" + slogan));
-        } else {
-            player.sendMessage(colorize("&cChyba při registraci! Zkuste to prosím znovu."));
-        }
+        ).thenAccept(success -> {
+            if (success) {
+                player.sendMessage(colorize("&aÚspěšně jste se zaregistrovali jako kandidát!"));
+                player.sendMessage(colorize("&7Role: &e" + data.getRole()));
+                player.sendMessage(colorize("&7Slogan: &e" + slogan));
+            } else {
+                player.sendMessage(colorize("&cChyba při registraci! Zkuste to prosím znovu."));
+            }
+        });
     }
     
     private void startSloganConversation(Player player, RegistrationData data) {
@@ -4,35 +4,50 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
-import net.luckperms.api.model.user.User;
+import cz.domca.elections.database.DatabaseExecutor;
+import cz.domca.elections.database.StorageBackend;
+import cz.domca.elections.util.TextTemplate;
 import net.luckperms.api.node.Node;
 
 public class ReputationManager {
     
+    private static final int PREFIX_UPDATES_PER_TICK = 20;
+    
     private final WeeklyElectionsPlugin plugin;
     
     public ReputationManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
     }
     
-    public int getReputation(String playerUuid) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "SELECT reputation FROM reputation WHERE player_uuid = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, playerUuid);
-                ResultSet rs = stmt.executeQuery();
-                
-                if (rs.next()) {
-                    return rs.getInt("reputation");
-                }
+    public CompletableFuture<Integer> getReputation(String playerUuid) {
+        return plugin.getDatabaseManager().readAsync(conn -> readReputation(conn, playerUuid));
+    }
+    
+    private int readReputation(Connection conn, String playerUuid) {
+        String query = "SELECT reputation FROM reputation WHERE player_uuid = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, playerUuid);
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getInt("reputation");
             }
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to get reputation", e);
@@ -42,41 +57,48 @@ public class ReputationManager {
     }
     
     public void addReputation(String playerUuid, String playerName, int amount, String reason) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            // Update or insert reputation
-            String upsertQuery = """
-                INSERT INTO reputation (player_uuid, player_name, reputation) 
-                VALUES (?, ?, ?) 
-                ON CONFLICT(player_uuid) DO UPDATE SET 
-                    reputation = reputation + ?, 
-                    player_name = ?,
-                    last_updated = strftime('%s', 'now')
-                """;
-            
-            try (PreparedStatement stmt = conn.prepareStatement(upsertQuery)) {
-                stmt.setString(1, playerUuid);
-                stmt.setString(2, playerName);
-                stmt.setInt(3, amount);
-                stmt.setInt(4, amount);
-                stmt.setString(5, playerName);
-                stmt.executeUpdate();
-            }
-            
-            // Check for prefix upgrade
-            checkPrefixUpgrade(playerUuid, playerName);
-            
-            // Notify player if online
-            Player player = plugin.getServer().getPlayer(playerUuid);
-            if (player != null) {
-                String message = plugin.getConfigManager().getConfig("reputation_rewards.yml")
-                    .getString("messages.reputation_gained", "&a+%amount% reputace! (%reason%)")
-                    .replace("%amount%", String.valueOf(amount))
-                    .replace("%reason%", reason);
-                player.sendMessage(colorize(message));
-            }
-            
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to add reputation", e);
+        plugin.getDatabaseManager().inTransaction(conn -> applyReputation(conn, playerUuid, playerName, amount))
+            .thenAccept(currentReputation -> onReputationChanged(playerUuid, amount, reason, currentReputation))
+            .exceptionally(e -> {
+                plugin.getLogger().log(Level.SEVERE, "Failed to add reputation", e);
+                return null;
+            });
+    }
+    
+    /**
+     * Upsert the reputation change and read back the new total on the same connection.
+     */
+    private int applyReputation(Connection conn, String playerUuid, String playerName, int amount) throws SQLException {
+        StorageBackend backend = plugin.getDatabaseManager().getBackend();
+        String upsertQuery = """
+            INSERT INTO reputation (player_uuid, player_name, reputation, last_updated)
+            VALUES (?, ?, ?, %s)
+            %s
+            """.formatted(backend.currentTime(), backend.upsert("player_uuid",
+                "reputation = reputation + ?, player_name = ?, last_updated = " + backend.currentTime()));
+        
+        try (PreparedStatement stmt = conn.prepareStatement(upsertQuery)) {
+            stmt.setString(1, playerUuid);
+            stmt.setString(2, playerName);
+            stmt.setInt(3, amount);
+            stmt.setInt(4, amount);
+            stmt.setString(5, playerName);
+            stmt.executeUpdate();
+        }
+        
+        return readReputation(conn, playerUuid);
+    }
+    
+    private void onReputationChanged(String playerUuid, int amount, String reason, int currentReputation) {
+        // Check for prefix upgrade
+        checkPrefixUpgrade(playerUuid, currentReputation);
+        
+        // Notify player if online
+        Player player = plugin.getServer().getPlayer(UUID.fromString(playerUuid));
+        if (player != null) {
+            String message = plugin.getConfigManager().getConfig("reputation_rewards.yml")
+                .getString("messages.reputation_gained", "&a+%amount% reputace! (%reason%)");
+            player.sendMessage(TextTemplate.of(message).render("amount", String.valueOf(amount), "reason", reason));
         }
     }
     
@@ -84,154 +106,286 @@ public class ReputationManager {
         addReputation(playerUuid, playerName, -amount, reason);
     }
     
-    private void checkPrefixUpgrade(String playerUuid, String playerName) {
-        int currentReputation = getReputation(playerUuid);
+    private void checkPrefixUpgrade(String playerUuid, int currentReputation) {
+        TreeMap<Integer, PrefixLevel> levels = loadPrefixLevels();
+        if (levels == null) return;
+        
+        // Find the highest prefix level the player qualifies for
+        PrefixLevel level = levelFor(levels, currentReputation);
         
+        // Apply prefix via LuckPerms
+        updatePlayerPrefix(playerUuid, level.prefix, level.name);
+    }
+    
+    private TreeMap<Integer, PrefixLevel> loadPrefixLevels() {
         ConfigurationSection prefixLevels = plugin.getConfigManager().getConfig("reputation_rewards.yml")
             .getConfigurationSection("prefix_levels");
         
-        if (prefixLevels == null) return;
+        if (prefixLevels == null) return null;
         
-        // Find the highest prefix level the player qualifies for
-        TreeMap<Integer, String> levels = new TreeMap<>();
+        TreeMap<Integer, PrefixLevel> levels = new TreeMap<>();
         for (String key : prefixLevels.getKeys(false)) {
             try {
                 int level = Integer.parseInt(key);
-                String prefix = prefixLevels.getString(key + ".prefix", "");
-                levels.put(level, prefix);
+                levels.put(level, new PrefixLevel(
+                    prefixLevels.getString(key + ".prefix", ""),
+                    prefixLevels.getString(key + ".name", "")
+                ));
             } catch (NumberFormatException e) {
                 // Skip invalid keys
             }
         }
-        
-        String newPrefix = "";
-        String newPrefixName = "";
-        
-        for (Map.Entry<Integer, String> entry : levels.descendingMap().entrySet()) {
-            if (currentReputation >= entry.getKey()) {
-                newPrefix = entry.getValue();
-                newPrefixName = prefixLevels.getString(entry.getKey() + ".name", "");
-                break;
-            }
-        }
-        
-        // Apply prefix via LuckPerms
-        updatePlayerPrefix(playerUuid, newPrefix, newPrefixName);
+        return levels;
+    }
+    
+    private PrefixLevel levelFor(TreeMap<Integer, PrefixLevel> levels, int reputation) {
+        Map.Entry<Integer, PrefixLevel> entry = levels.floorEntry(reputation);
+        return entry != null ? entry.getValue() : PrefixLevel.NONE;
     }
     
     private void updatePlayerPrefix(String playerUuid, String prefix, String prefixName) {
-        try {
-            User user = plugin.getLuckPerms().getUserManager().loadUser(java.util.UUID.fromString(playerUuid)).join();
+        UUID uuid = UUID.fromString(playerUuid);
+        
+        plugin.getLuckPermsAdapter().modifyUser(uuid, user -> {
+            // Remove old reputation prefix
+            user.data().clear(node -> node.getKey().startsWith("prefix.") && node.getKey().contains("reputation"));
             
-            if (user != null) {
-                // Remove old reputation prefix
-                user.data().clear(node -> node.getKey().startsWith("prefix.") && node.getKey().contains("reputation"));
-                
-                // Add new prefix if not empty
-                if (!prefix.isEmpty()) {
-                    Node prefixNode = Node.builder("prefix.100.reputation." + prefix)
-                        .build();
-                    user.data().add(prefixNode);
-                    
-                    // Notify player if online
-                    Player player = plugin.getServer().getPlayer(playerUuid);
-                    if (player != null) {
-                        String message = plugin.getConfigManager().getConfig("reputation_rewards.yml")
-                            .getString("messages.prefix_upgraded", "&6Gratulujeme! Získali jste nový titul: %prefix%")
-                            .replace("%prefix%", prefixName);
-                        player.sendMessage(colorize(message));
-                    }
-                }
-                
-                // Save changes
-                plugin.getLuckPerms().getUserManager().saveUser(user);
+            // Add new prefix if not empty
+            if (!prefix.isEmpty()) {
+                Node prefixNode = Node.builder("prefix.100.reputation." + prefix)
+                    .build();
+                user.data().add(prefixNode);
             }
-            
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to update player prefix", e);
-        }
+        }).thenRun(() -> {
+            // Notify player if online
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player != null && !prefix.isEmpty()) {
+                String message = plugin.getConfigManager().getConfig("reputation_rewards.yml")
+                    .getString("messages.prefix_upgraded", "&6Gratulujeme! Získali jste nový titul: %prefix%");
+                player.sendMessage(TextTemplate.of(message).render("prefix", prefixName));
+            }
+        });
     }
     
-    public void giveElectionRewards(String regionId) {
-        // Get election results and give reputation rewards
-        // This will be called when elections end
-        
+    /**
+     * Apply all election rewards with a few set-based statements in one transaction.
+     * Prefixes are then pushed to LuckPerms only for players whose level changed,
+     * a few players per tick.
+     * Winners are the ones persisted in election_winners, one per role, so the
+     * rewards must be given after the results were persisted.
+     * The claim runs first in the same transaction, when it returns false the
+     * rewards were already given and nothing happens. The future fails if the
+     * transaction did.
+     */
+    public CompletableFuture<Void> giveElectionRewards(int electionId, String regionId, DatabaseExecutor.SqlFunction<Boolean> claim) {
         ConfigurationSection reputationConfig = plugin.getConfigManager().getConfig("regions.yml")
             .getConfigurationSection("reputation");
         
-        if (reputationConfig == null) return;
+        if (reputationConfig == null) return CompletableFuture.completedFuture(null);
         
         int winnerReward = reputationConfig.getInt("winner", 10);
         int candidateReward = reputationConfig.getInt("candidate", 2);
         int voterReward = reputationConfig.getInt("voter", 1);
         
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            int electionId = plugin.getElectionManager().getCurrentElection().getId();
+        // Voter names are not stored with votes, take them from online players
+        Map<String, String> onlineNames = new HashMap<>();
+        for (Player online : plugin.getServer().getOnlinePlayers()) {
+            onlineNames.put(online.getUniqueId().toString(), online.getName());
+        }
+        
+        StorageBackend backend = plugin.getDatabaseManager().getBackend();
+        return plugin.getDatabaseManager().inTransaction(conn -> {
+            if (!claim.apply(conn)) {
+                return null;
+            }
+            
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("""
+                    %s election_rewards (
+                        player_uuid TEXT NOT NULL,
+                        player_name TEXT,
+                        amount INTEGER NOT NULL,
+                        reason TEXT NOT NULL
+                    )
+                    """.formatted(backend.createTempTable()));
+                stmt.executeUpdate("DELETE FROM election_rewards");
+            }
             
-            // Reward winners (one per role - highest votes in each role)
+            // Winners (one per role, as persisted with the results)
             String winnersQuery = """
-                SELECT c.player_uuid, c.player_name, c.role, c.votes
-                FROM candidates c
-                WHERE c.election_id = ?
-                AND c.votes = (
-                    SELECT MAX(c2.votes) 
-                    FROM candidates c2 
-                    WHERE c2.election_id = c.election_id 
-                    AND c2.role = c.role
-                )
+                INSERT INTO election_rewards (player_uuid, player_name, amount, reason)
+                SELECT w.player_uuid, w.player_name, ?, %s
+                FROM election_winners w
+                WHERE w.election_id = ?
+                """.formatted(backend.concat("'Vítězství ve volbách (role: '", "w.role", "')'"));
+            try (PreparedStatement stmt = conn.prepareStatement(winnersQuery)) {
+                stmt.setInt(1, winnerReward);
+                stmt.setInt(2, electionId);
+                stmt.executeUpdate();
+            }
+            
+            // All candidates (including winners, but they get both rewards)
+            String candidatesQuery = """
+                INSERT INTO election_rewards (player_uuid, player_name, amount, reason)
+                SELECT player_uuid, player_name, ?, 'Účast ve volbách'
+                FROM candidates WHERE election_id = ?
                 """;
+            try (PreparedStatement stmt = conn.prepareStatement(candidatesQuery)) {
+                stmt.setInt(1, candidateReward);
+                stmt.setInt(2, electionId);
+                stmt.executeUpdate();
+            }
             
-            try (PreparedStatement stmt = conn.prepareStatement(winnersQuery)) {
-                stmt.setInt(1, electionId);
-                ResultSet rs = stmt.executeQuery();
-                
-                while (rs.next()) {
-                    String playerUuid = rs.getString("player_uuid");
-                    String playerName = rs.getString("player_name");
-                    String role = rs.getString("role");
-                    
-                    addReputation(playerUuid, playerName, 
-                        winnerReward, "Vítězství ve volbách (role: " + role + ")");
-                    
-                    plugin.getLogger().info("Awarded winner reputation to " + playerName + " for role " + role);
+            // All voters
+            String votersQuery = """
+                INSERT INTO election_rewards (player_uuid, player_name, amount, reason)
+                SELECT DISTINCT voter_uuid, NULL, ?, 'Hlasování ve volbách'
+                FROM votes WHERE election_id = ?
+                """;
+            try (PreparedStatement stmt = conn.prepareStatement(votersQuery)) {
+                stmt.setInt(1, voterReward);
+                stmt.setInt(2, electionId);
+                stmt.executeUpdate();
+            }
+            
+            String nameQuery = "UPDATE election_rewards SET player_name = ? WHERE player_uuid = ? AND player_name IS NULL";
+            try (PreparedStatement stmt = conn.prepareStatement(nameQuery)) {
+                for (Map.Entry<String, String> online : onlineNames.entrySet()) {
+                    stmt.setString(1, online.getValue());
+                    stmt.setString(2, online.getKey());
+                    stmt.addBatch();
                 }
+                stmt.executeBatch();
             }
             
-            // Reward all candidates (including winners, but they get both rewards)
-            String candidatesQuery = "SELECT player_uuid, player_name FROM candidates WHERE election_id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(candidatesQuery)) {
-                stmt.setInt(1, electionId);
+            RewardResult result = new RewardResult();
+            
+            // Totals before the update, to tell which players reach another prefix level
+            String totalsQuery = """
+                SELECT r.player_uuid, SUM(r.amount) AS amount, COALESCE(MAX(rep.reputation), 0) AS reputation
+                FROM election_rewards r
+                LEFT JOIN reputation rep ON rep.player_uuid = r.player_uuid
+                GROUP BY r.player_uuid
+                """;
+            try (PreparedStatement stmt = conn.prepareStatement(totalsQuery)) {
                 ResultSet rs = stmt.executeQuery();
-                
                 while (rs.next()) {
-                    addReputation(rs.getString("player_uuid"), rs.getString("player_name"), 
-                        candidateReward, "Účast ve volbách");
+                    int before = rs.getInt("reputation");
+                    result.totals.put(rs.getString("player_uuid"), new int[] { before, before + rs.getInt("amount") });
                 }
             }
             
-            // Reward all voters
-            String votersQuery = "SELECT DISTINCT voter_uuid FROM votes WHERE election_id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(votersQuery)) {
-                stmt.setInt(1, electionId);
+            // Known names are kept, voters that were offline only get 'Unknown' on a new row
+            String applyQuery = """
+                INSERT INTO reputation (player_uuid, player_name, reputation, last_updated)
+                SELECT player_uuid, COALESCE(MAX(player_name), 'Unknown'), SUM(amount), %s
+                FROM election_rewards
+                WHERE true
+                GROUP BY player_uuid
+                %s
+                """.formatted(backend.currentTime(), backend.upsert("player_uuid", String.join(", ",
+                    "reputation = reputation.reputation + " + backend.excluded("reputation"),
+                    "player_name = CASE WHEN " + backend.excluded("player_name") + " = 'Unknown' THEN reputation.player_name ELSE "
+                        + backend.excluded("player_name") + " END",
+                    "last_updated = " + backend.currentTime())));
+            try (PreparedStatement stmt = conn.prepareStatement(applyQuery)) {
+                stmt.executeUpdate();
+            }
+            
+            // Individual reward lines are only needed for players that can read them
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT player_uuid, amount, reason FROM election_rewards")) {
                 ResultSet rs = stmt.executeQuery();
-                
                 while (rs.next()) {
-                    String voterUuid = rs.getString("voter_uuid");
-                    Player voter = plugin.getServer().getPlayer(java.util.UUID.fromString(voterUuid));
-                    String voterName = voter != null ? voter.getName() : "Unknown";
-                    
-                    addReputation(voterUuid, voterName, voterReward, "Hlasování ve volbách");
+                    String playerUuid = rs.getString("player_uuid");
+                    if (onlineNames.containsKey(playerUuid)) {
+                        result.messages.add(new Reward(playerUuid, rs.getInt("amount"), rs.getString("reason")));
+                    }
                 }
             }
             
-            plugin.getLogger().info("Election rewards distributed for region: " + regionId);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM election_rewards");
+            }
+            return result;
+        }).thenAccept(result -> {
+            if (result == null) {
+                return;
+            }
             
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to give election rewards", e);
+            TextTemplate messageTemplate = TextTemplate.of(plugin.getConfigManager().getConfig("reputation_rewards.yml")
+                .getString("messages.reputation_gained", "&a+%amount% reputace! (%reason%)"));
+            for (Reward reward : result.messages) {
+                Player player = plugin.getServer().getPlayer(UUID.fromString(reward.playerUuid));
+                if (player != null) {
+                    player.sendMessage(messageTemplate.render("amount", String.valueOf(reward.amount), "reason", reward.reason));
+                }
+            }
+            
+            TreeMap<Integer, PrefixLevel> levels = loadPrefixLevels();
+            if (levels != null) {
+                Deque<Runnable> prefixUpdates = new ArrayDeque<>();
+                for (Map.Entry<String, int[]> entry : result.totals.entrySet()) {
+                    PrefixLevel before = levelFor(levels, entry.getValue()[0]);
+                    PrefixLevel after = levelFor(levels, entry.getValue()[1]);
+                    if (before != after) {
+                        prefixUpdates.add(() -> updatePlayerPrefix(entry.getKey(), after.prefix, after.name));
+                    }
+                }
+                
+                runInBatches(prefixUpdates);
+            }
+            
+            plugin.getLogger().info("Election rewards distributed to " + result.totals.size() + " players for region: " + regionId);
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to give election rewards", e);
+            }
+        });
+    }
+    
+    private void runInBatches(Deque<Runnable> tasks) {
+        if (tasks.isEmpty()) return;
+        
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < PREFIX_UPDATES_PER_TICK && !tasks.isEmpty(); i++) {
+                    tasks.poll().run();
+                }
+                if (tasks.isEmpty()) {
+                    cancel();
+                }
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+    
+    private static class PrefixLevel {
+        static final PrefixLevel NONE = new PrefixLevel("", "");
+        
+        final String prefix;
+        final String name;
+        
+        PrefixLevel(String prefix, String name) {
+            this.prefix = prefix;
+            this.name = name;
+        }
+    }
+    
+    private static class Reward {
+        final String playerUuid;
+        final int amount;
+        final String reason;
+        
+        Reward(String playerUuid, int amount, String reason) {
+            this.playerUuid = playerUuid;
+            this.amount = amount;
+            this.reason = reason;
         }
     }
     
-    private String colorize(String text) {
-        return text.replace("&", "§");
+    private static class RewardResult {
+        // player uuid -> { reputation before, reputation after }
+        final Map<String, int[]> totals = new HashMap<>();
+        final List<Reward> messages = new ArrayList<>();
     }
 }
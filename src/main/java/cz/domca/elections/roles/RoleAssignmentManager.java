@@ -2,20 +2,24 @@ package cz.domca.elections.roles;
 
 import cz.domca.elections.WeeklyElectionsPlugin;
 import cz.domca.elections.elections.Candidate;
+import cz.domca.elections.luckperms.RegionContextCalculator;
 import net.luckperms.api.context.ImmutableContextSet;
-import net.luckperms.api.model.user.User;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeType;
 import net.luckperms.api.node.types.InheritanceNode;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
@@ -23,51 +27,78 @@ import java.util.logging.Level;
 public class RoleAssignmentManager {
     
     private final WeeklyElectionsPlugin plugin;
+    private final RoleExpiryScheduler expiryScheduler;
     
     public RoleAssignmentManager(WeeklyElectionsPlugin plugin) {
         this.plugin = plugin;
+        this.expiryScheduler = new RoleExpiryScheduler(plugin, this::expireRoles);
     }
     
-    public void assignElectionRoles(String regionId, List<Candidate> allCandidates) {
-        // Group candidates by role and get the winner (most votes) for each role
-        Map<String, Candidate> winnersByRole = new HashMap<>();
-        
-        for (Candidate candidate : allCandidates) {
-            String role = candidate.getRole();
-            if (role != null && !winnersByRole.containsKey(role)) {
-                // First candidate for this role (highest votes due to sorting)
-                winnersByRole.put(role, candidate);
+    /**
+     * Load the end times of all active mandates, roles that expired while the
+     * server was down are removed right after the load.
+     */
+    public void initialize() {
+        plugin.getDatabaseManager().supplyAsync(conn -> {
+            List<HeldRole> active = new ArrayList<>();
+            String query = "SELECT id, player_uuid, player_name, region_id, role, end_time FROM role_holders WHERE active = TRUE";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    active.add(readHeldRole(rs));
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load active roles", e);
             }
-        }
-        
-        // Assign roles to winners
-        for (Candidate winner : winnersByRole.values()) {
-            assignRole(winner, regionId);
-        }
+            return active;
+        }).thenAccept(expiryScheduler::scheduleAll);
+    }
+    
+    public void shutdown() {
+        expiryScheduler.shutdown();
+    }
+    
+    /**
+     * Grant the winners of an election their roles. Winners whose role is already
+     * recorded for this election are skipped, so an interrupted assignment can be
+     * run again. The future completes once every role is recorded, or exceptionally
+     * if a role could not be granted or recorded.
+     */
+    public CompletableFuture<Void> assignElectionRoles(int electionId, String regionId, Collection<Candidate> winners) {
+        return plugin.getDatabaseManager().supplyAsync(conn -> {
+            Set<String> assigned = new HashSet<>();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT role FROM role_holders WHERE election_id = ?")) {
+                stmt.setInt(1, electionId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    assigned.add(rs.getString("role"));
+                }
+            }
+            return assigned;
+        }).thenCompose(assigned -> {
+            List<CompletableFuture<Void>> assignments = new ArrayList<>();
+            for (Candidate winner : winners) {
+                if (!assigned.contains(winner.getRole())) {
+                    assignments.add(assignRole(winner, electionId, regionId));
+                }
+            }
+            return CompletableFuture.allOf(assignments.toArray(new CompletableFuture[0]));
+        });
     }
     
-    private void assignRole(Candidate winner, String regionId) {
+    private CompletableFuture<Void> assignRole(Candidate winner, int electionId, String regionId) {
         try {
             UUID playerUuid = UUID.fromString(winner.getPlayerUuid());
             String roleGroup = getRoleGroup(winner.getRole());
             
             if (roleGroup == null) {
                 plugin.getLogger().warning("No LuckPerms group found for role: " + winner.getRole());
-                return;
-            }
-            
-            // Load user
-            CompletableFuture<User> userFuture = plugin.getLuckPerms().getUserManager().loadUser(playerUuid);
-            User user = userFuture.join();
-            
-            if (user == null) {
-                plugin.getLogger().warning("Failed to load user for role assignment: " + winner.getPlayerName());
-                return;
+                return CompletableFuture.completedFuture(null);
             }
             
             // Create context set for region
             ImmutableContextSet contextSet = ImmutableContextSet.builder()
-                .add("region", regionId)
+                .add(RegionContextCalculator.CONTEXT_KEY, regionId)
                 .build();
             
             // Create inheritance node with region context and expiry
@@ -78,30 +109,45 @@ public class RoleAssignmentManager {
                 .expiry(expiry)
                 .build();
             
-            // Add the node to user
-            user.data().add(roleNode);
-            
-            // Save user
-            plugin.getLuckPerms().getUserManager().saveUser(user);
-            
-            // Notify player if online and record in database
-            org.bukkit.entity.Player player = plugin.getServer().getPlayer(playerUuid);
-            boolean notified = false;
-            if (player != null && player.isOnline()) {
-                notifyWinner(player, winner.getRole(), regionId);
-                notified = true;
-            }
-            
-            // Record in database with notification status
-            recordRoleAssignment(winner, regionId, expiry, notified);
-            
-            plugin.getLogger().info("Assigned role " + winner.getRole() + " to " + winner.getPlayerName() + " in region " + regionId);
+            // Add the node to user, the rest continues on the main thread once LuckPerms saved it.
+            // A node left by an interrupted earlier attempt is replaced rather than duplicated.
+            return plugin.getLuckPermsAdapter().modifyUser(playerUuid, user -> {
+                user.data().clear(node -> isRoleNode(node, roleGroup, contextSet));
+                user.data().add(roleNode);
+            }).thenCompose(ignored -> {
+                // Notify player if online and record in database
+                org.bukkit.entity.Player player = plugin.getServer().getPlayer(playerUuid);
+                boolean notified = false;
+                if (player != null && player.isOnline()) {
+                    notifyWinner(player, winner.getRole(), regionId);
+                    notified = true;
+                }
+                
+                plugin.getLogger().info("Assigned role " + winner.getRole() + " to " + winner.getPlayerName() + " in region " + regionId);
+                
+                // Record in database with notification status, then watch for its expiry
+                return recordRoleAssignment(winner, electionId, regionId, expiry, notified).thenAccept(held -> {
+                    if (held != null) {
+                        expiryScheduler.schedule(held);
+                    }
+                });
+            });
             
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to assign role to " + winner.getPlayerName(), e);
+            return CompletableFuture.failedFuture(e);
         }
     }
     
+    private static boolean isRoleNode(Node node, String roleGroup, ImmutableContextSet contextSet) {
+        if (node.getType() == NodeType.INHERITANCE) {
+            InheritanceNode inheritanceNode = (InheritanceNode) node;
+            return inheritanceNode.getGroupName().equals(roleGroup) &&
+                   node.getContexts().equals(contextSet);
+        }
+        return false;
+    }
+    
     private void notifyWinner(org.bukkit.entity.Player player, String role, String regionId) {
         player.sendMessage("§6§l╔═══════════════════════════════╗");
         player.sendMessage("§6§l║    GRATULUJEME K VÍTĚZSTVÍ!   ║");
@@ -119,55 +165,65 @@ public class RoleAssignmentManager {
             .getString("roles." + roleId + ".luckperms_group");
     }
     
-    private void recordRoleAssignment(Candidate winner, String regionId, Instant expiry, boolean notified) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
+    private CompletableFuture<HeldRole> recordRoleAssignment(Candidate winner, int electionId, String regionId, Instant expiry, boolean notified) {
+        long startTime = Instant.now().getEpochSecond();
+        return plugin.getDatabaseManager().supplyAsync(conn -> {
             String query = """
-                INSERT INTO role_holders (player_uuid, player_name, region_id, role, start_time, end_time, active, notified)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                INSERT INTO role_holders (player_uuid, player_name, region_id, role, start_time, end_time, active, notified, election_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
                 """;
             
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
                 stmt.setString(1, winner.getPlayerUuid());
                 stmt.setString(2, winner.getPlayerName());
                 stmt.setString(3, regionId);
                 stmt.setString(4, winner.getRole());
-                stmt.setLong(5, Instant.now().getEpochSecond());
+                stmt.setLong(5, startTime);
                 stmt.setLong(6, expiry.getEpochSecond());
                 stmt.setBoolean(7, true);
                 stmt.setBoolean(8, notified);
+                stmt.setInt(9, electionId);
                 stmt.executeUpdate();
+                
+                ResultSet keys = stmt.getGeneratedKeys();
+                if (keys.next()) {
+                    return new HeldRole(keys.getInt(1), winner.getPlayerUuid(), winner.getPlayerName(), regionId, winner.getRole(), expiry.getEpochSecond());
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to record role assignment", e);
+                throw e;
             }
-            
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to record role assignment", e);
-        }
+            return null;
+        });
     }
     
-    public void checkExpiredRoles() {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            // Find expired active roles
-            String query = "SELECT * FROM role_holders WHERE active = TRUE AND end_time <= ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setLong(1, Instant.now().getEpochSecond());
-                var rs = stmt.executeQuery();
-                
-                while (rs.next()) {
-                    String playerUuid = rs.getString("player_uuid");
-                    String playerName = rs.getString("player_name");
-                    String regionId = rs.getString("region_id");
-                    String role = rs.getString("role");
-                    int roleId = rs.getInt("id");
-                    
-                    removeExpiredRole(playerUuid, playerName, regionId, role, roleId);
+    /**
+     * Called by the expiry scheduler. Only rows that are still active are
+     * deactivated, so a role removed in the meantime is not removed twice.
+     */
+    private void expireRoles(List<HeldRole> due) {
+        plugin.getDatabaseManager().inTransaction(conn -> {
+            List<HeldRole> expired = new ArrayList<>();
+            String updateQuery = "UPDATE role_holders SET active = FALSE WHERE id = ? AND active = TRUE";
+            // One update per role, a batch may report SUCCESS_NO_INFO instead of the row count
+            try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
+                for (HeldRole held : due) {
+                    stmt.setInt(1, held.id);
+                    if (stmt.executeUpdate() > 0) {
+                        expired.add(held);
+                    }
                 }
             }
             
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check expired roles", e);
-        }
+            return expired;
+        }).thenAccept(expired -> {
+            for (HeldRole held : expired) {
+                removeExpiredRole(held.playerUuid, held.playerName, held.regionId, held.role);
+            }
+        });
     }
     
-    private void removeExpiredRole(String playerUuidStr, String playerName, String regionId, String role, int roleId) {
+    private void removeExpiredRole(String playerUuidStr, String playerName, String regionId, String role) {
         try {
             UUID playerUuid = UUID.fromString(playerUuidStr);
             String roleGroup = getRoleGroup(role);
@@ -177,29 +233,13 @@ public class RoleAssignmentManager {
                 return;
             }
             
-            // Load user
-            CompletableFuture<User> userFuture = plugin.getLuckPerms().getUserManager().loadUser(playerUuid);
-            User user = userFuture.join();
+            // Create context set for region
+            ImmutableContextSet contextSet = ImmutableContextSet.builder()
+                .add(RegionContextCalculator.CONTEXT_KEY, regionId)
+                .build();
             
-            if (user != null) {
-                // Create context set for region
-                ImmutableContextSet contextSet = ImmutableContextSet.builder()
-                    .add("region", regionId)
-                    .build();
-                
-                // Remove all inheritance nodes for this group with this context
-                user.data().clear(node -> {
-                    if (node.getType() == NodeType.INHERITANCE) {
-                        InheritanceNode inheritanceNode = (InheritanceNode) node;
-                        return inheritanceNode.getGroupName().equals(roleGroup) &&
-                               node.getContexts().equals(contextSet);
-                    }
-                    return false;
-                });
-                
-                // Save user
-                plugin.getLuckPerms().getUserManager().saveUser(user);
-                
+            // Remove all inheritance nodes for this group with this context
+            plugin.getLuckPermsAdapter().modifyUser(playerUuid, user -> user.data().clear(node -> isRoleNode(node, roleGroup, contextSet))).thenRun(() -> {
                 plugin.getLogger().info("Removed expired role " + role + " from " + playerName + " in region " + regionId);
                 
                 // Notify player if online
@@ -207,79 +247,103 @@ public class RoleAssignmentManager {
                 if (player != null) {
                     player.sendMessage("§cVáš mandát na pozici " + role + " v regionu " + regionId + " vypršel.");
                 }
-            }
-            
-            // Mark as inactive in database
-            try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-                String updateQuery = "UPDATE role_holders SET active = FALSE WHERE id = ?";
-                try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
-                    stmt.setInt(1, roleId);
-                    stmt.executeUpdate();
-                }
-            }
+            });
             
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to remove expired role from " + playerName, e);
         }
     }
     
-    public boolean hasActiveRole(String playerUuid, String regionId) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
+    public CompletableFuture<Boolean> hasActiveRole(String playerUuid, String regionId) {
+        long now = Instant.now().getEpochSecond();
+        return plugin.getDatabaseManager().readAsync(conn -> {
             String query = "SELECT COUNT(*) FROM role_holders WHERE player_uuid = ? AND region_id = ? AND active = TRUE AND end_time > ?";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 stmt.setString(1, playerUuid);
                 stmt.setString(2, regionId);
-                stmt.setLong(3, Instant.now().getEpochSecond());
+                stmt.setLong(3, now);
                 var rs = stmt.executeQuery();
                 
                 if (rs.next()) {
                     return rs.getInt(1) > 0;
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to check active role", e);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check active role", e);
-        }
-        
-        return false;
+            
+            return false;
+        });
     }
     
     public void checkAndNotifyWinners(org.bukkit.entity.Player player) {
         String playerUuid = player.getUniqueId().toString();
+        String playerName = player.getName();
+        long now = Instant.now().getEpochSecond();
         
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "SELECT region_id, role FROM role_holders WHERE player_uuid = ? AND active = TRUE AND notified = FALSE AND end_time > ?";
+        plugin.getDatabaseManager().inTransaction(conn -> {
+            List<HeldRole> pending = new ArrayList<>();
+            String query = "SELECT id, player_uuid, player_name, region_id, role, end_time FROM role_holders WHERE player_uuid = ? AND active = TRUE AND notified = FALSE AND end_time > ?";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 stmt.setString(1, playerUuid);
-                stmt.setLong(2, Instant.now().getEpochSecond());
+                stmt.setLong(2, now);
                 var rs = stmt.executeQuery();
                 
                 while (rs.next()) {
-                    String regionId = rs.getString("region_id");
-                    String role = rs.getString("role");
-                    
-                    // Notify player
-                    notifyWinner(player, role, regionId);
-                    
-                    // Mark as notified
-                    markAsNotified(playerUuid, regionId, role);
+                    pending.add(readHeldRole(rs));
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to check pending notifications for " + playerName, e);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check pending notifications for " + player.getName(), e);
-        }
+            
+            // Mark as notified together with the read, so a second join cannot pick them up again
+            markAsNotified(conn, pending);
+            return pending;
+        }).thenAccept(pending -> {
+            if (!player.isOnline()) return;
+            
+            for (HeldRole held : pending) {
+                notifyWinner(player, held.role, held.regionId);
+            }
+        });
     }
     
-    private void markAsNotified(String playerUuid, String regionId, String role) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String query = "UPDATE role_holders SET notified = TRUE WHERE player_uuid = ? AND region_id = ? AND role = ? AND active = TRUE";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, playerUuid);
-                stmt.setString(2, regionId);
-                stmt.setString(3, role);
-                stmt.executeUpdate();
+    private void markAsNotified(Connection conn, List<HeldRole> held) throws SQLException {
+        String query = "UPDATE role_holders SET notified = TRUE WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (HeldRole role : held) {
+                stmt.setInt(1, role.id);
+                stmt.addBatch();
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to mark notification as sent", e);
+            stmt.executeBatch();
+        }
+    }
+    
+    private static HeldRole readHeldRole(ResultSet rs) throws SQLException {
+        return new HeldRole(
+            rs.getInt("id"),
+            rs.getString("player_uuid"),
+            rs.getString("player_name"),
+            rs.getString("region_id"),
+            rs.getString("role"),
+            rs.getLong("end_time")
+        );
+    }
+    
+    static class HeldRole {
+        final int id;
+        final String playerUuid;
+        final String playerName;
+        final String regionId;
+        final String role;
+        final long endTime;
+        
+        HeldRole(int id, String playerUuid, String playerName, String regionId, String role, long endTime) {
+            this.id = id;
+            this.playerUuid = playerUuid;
+            this.playerName = playerName;
+            this.regionId = regionId;
+            this.role = role;
+            this.endTime = endTime;
         }
     }
 }
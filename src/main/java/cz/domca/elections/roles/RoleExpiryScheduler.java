@@ -0,0 +1,91 @@
+package cz.domca.elections.roles;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.roles.RoleAssignmentManager.HeldRole;
+
+/**
+ * Keeps the end times of all active mandates in a min-heap and arms a single
+ * task for the earliest one. Expired roles are handed over when they expire,
+ * the role_holders table is never polled. Main-thread only.
+ */
+class RoleExpiryScheduler {
+    
+    // Tick delays drift when the server lags, so long waits are split and the clock re-checked
+    private static final long MAX_DELAY_TICKS = 20L * 60 * 10;
+    
+    private final WeeklyElectionsPlugin plugin;
+    private final Consumer<List<HeldRole>> onExpired;
+    private final PriorityQueue<HeldRole> queue = new PriorityQueue<>(Comparator.comparingLong(held -> held.endTime));
+    private BukkitTask armedTask;
+    private long armedFor = Long.MAX_VALUE;
+    
+    RoleExpiryScheduler(WeeklyElectionsPlugin plugin, Consumer<List<HeldRole>> onExpired) {
+        this.plugin = plugin;
+        this.onExpired = onExpired;
+    }
+    
+    void schedule(HeldRole held) {
+        queue.add(held);
+        if (held.endTime < armedFor) {
+            arm();
+        }
+    }
+    
+    void scheduleAll(Collection<HeldRole> held) {
+        queue.addAll(held);
+        arm();
+    }
+    
+    void shutdown() {
+        cancel();
+        queue.clear();
+    }
+    
+    private void arm() {
+        cancel();
+        
+        HeldRole next = queue.peek();
+        if (next == null) {
+            return;
+        }
+        
+        long seconds = next.endTime - Instant.now().getEpochSecond();
+        long delay = Math.max(1L, Math.min(MAX_DELAY_TICKS, seconds * 20L));
+        armedFor = next.endTime;
+        armedTask = plugin.getServer().getScheduler().runTaskLater(plugin, this::fire, delay);
+    }
+    
+    private void fire() {
+        armedTask = null;
+        armedFor = Long.MAX_VALUE;
+        
+        long now = Instant.now().getEpochSecond();
+        List<HeldRole> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().endTime <= now) {
+            due.add(queue.poll());
+        }
+        
+        arm();
+        if (!due.isEmpty()) {
+            onExpired.accept(due);
+        }
+    }
+    
+    private void cancel() {
+        if (armedTask != null) {
+            armedTask.cancel();
+            armedTask = null;
+        }
+        armedFor = Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,136 @@
+package cz.domca.elections.tasks;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.elections.Election;
+
+/**
+ * Arms one task per running election for the instant its current phase ends
+ * and runs the transition then. The instant is computed from the election's
+ * start time and the configured durations whenever the election or its phase
+ * changes, on reload and on startup, where overdue transitions run right away
+ * one after another. Between transitions nothing runs. Main-thread only.
+ */
+public class PhaseScheduler {
+    
+    // Tick delays drift when the server lags, so long waits are split and the clock re-checked
+    private static final long MAX_DELAY_TICKS = 20L * 60 * 10;
+    
+    private final WeeklyElectionsPlugin plugin;
+    // Armed transitions by region id
+    private final Map<String, ArmedTransition> armed = new HashMap<>();
+    
+    public PhaseScheduler(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Re-arm for all running elections, called on startup and when the durations change.
+     */
+    public void schedule() {
+        for (String regionId : new ArrayList<>(armed.keySet())) {
+            cancel(regionId);
+        }
+        for (Election election : plugin.getElectionManager().getElections()) {
+            schedule(election.getRegionId());
+        }
+    }
+    
+    /**
+     * Re-arm for the region's election, called whenever it or its phase changes.
+     */
+    public void schedule(String regionId) {
+        cancel(regionId);
+        
+        Election election = plugin.getElectionManager().getElection(regionId);
+        if (election == null) {
+            return;
+        }
+        
+        ArmedTransition transition = new ArmedTransition(regionId, election.getId(), getPhaseEnd(election));
+        armed.put(regionId, transition);
+        arm(transition);
+    }
+    
+    public void shutdown() {
+        for (String regionId : new ArrayList<>(armed.keySet())) {
+            cancel(regionId);
+        }
+    }
+    
+    /**
+     * When the current phase of the region's election ends, null if the region does not vote.
+     */
+    public Instant getNextTransition(String regionId) {
+        ArmedTransition transition = armed.get(regionId);
+        return transition != null ? transition.at : null;
+    }
+    
+    private Instant getPhaseEnd(Election election) {
+        int days = plugin.getConfigManager().getRegistrationDuration();
+        switch (election.getPhase()) {
+            case VOTING:
+                days += plugin.getConfigManager().getVotingDuration();
+                break;
+            
+            case RESULTS:
+                // The mandate starts after voting ends
+                days += plugin.getConfigManager().getVotingDuration() + plugin.getConfigManager().getMandateDuration();
+                break;
+            
+            default:
+                break;
+        }
+        return election.getStartTime().plus(days, ChronoUnit.DAYS);
+    }
+    
+    private void arm(ArmedTransition transition) {
+        long millis = transition.at.toEpochMilli() - System.currentTimeMillis();
+        long delay = Math.max(1L, Math.min(MAX_DELAY_TICKS, (millis + 49) / 50));
+        transition.task = plugin.getServer().getScheduler().runTaskLater(plugin, () -> fire(transition), delay);
+    }
+    
+    private void fire(ArmedTransition transition) {
+        transition.task = null;
+        
+        Election election = plugin.getElectionManager().getElection(transition.regionId);
+        if (election == null || election.getId() != transition.electionId) {
+            schedule(transition.regionId);
+            return;
+        }
+        if (Instant.now().isBefore(transition.at)) {
+            arm(transition);
+            return;
+        }
+        
+        // Changing the phase re-arms this scheduler for the next one
+        new ElectionTask(plugin, transition.regionId).run();
+    }
+    
+    private void cancel(String regionId) {
+        ArmedTransition transition = armed.remove(regionId);
+        if (transition != null && transition.task != null) {
+            transition.task.cancel();
+        }
+    }
+    
+    private static class ArmedTransition {
+        private final String regionId;
+        private final int electionId;
+        private final Instant at;
+        private BukkitTask task;
+        
+        ArmedTransition(String regionId, int electionId, Instant at) {
+            this.regionId = regionId;
+            this.electionId = electionId;
+            this.at = at;
+        }
+    }
+}
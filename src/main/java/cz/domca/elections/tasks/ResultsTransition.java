@@ -0,0 +1,317 @@
+package cz.domca.elections.tasks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+import org.bukkit.Color;
+import org.bukkit.FireworkEffect;
+import org.bukkit.Location;
+import org.bukkit.entity.Firework;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.meta.FireworkMeta;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import cz.domca.elections.WeeklyElectionsPlugin;
+import cz.domca.elections.elections.Candidate;
+import cz.domca.elections.elections.ElectionPhase;
+import cz.domca.elections.elections.ElectionResults;
+import cz.domca.elections.elections.ElectionState;
+import cz.domca.elections.util.TextTemplate;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.title.Title;
+
+/**
+ * Everything that happens once voting closes, as stages run one after another:
+ * persist the results, give rewards, assign roles and announce the winners.
+ * Every completed stage is recorded in transition_stages, database stages in
+ * the same transaction as their work, so a transition interrupted by a crash
+ * resumes on the next start with the first unfinished stage and no stage is
+ * ever repeated. The stages after RESULTS take the winners from
+ * election_winners, so a resumed transition rewards and announces exactly the
+ * winners that were persisted. Database and LuckPerms work runs off the main
+ * thread, the stages continue on the main thread in later ticks.
+ */
+public class ResultsTransition {
+    
+    enum Stage {
+        RESULTS,
+        REWARDS,
+        ROLES,
+        ANNOUNCE
+    }
+    
+    private final WeeklyElectionsPlugin plugin;
+    // Elections whose stages are running right now, main thread only
+    private final Set<Integer> runningElections = new HashSet<>();
+    
+    public ResultsTransition(WeeklyElectionsPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Finish the transitions of running elections that were interrupted, called on startup.
+     */
+    public void resume() {
+        for (ElectionState state : plugin.getElectionManager().getStates()) {
+            if (state.getPhase() == ElectionPhase.RESULTS) {
+                start(state);
+            }
+        }
+    }
+    
+    /**
+     * Run the stages of the election that have not completed yet. The results are
+     * taken from the given state only to persist the winners, later stages do not
+     * depend on the election still running in its region.
+     */
+    public void start(ElectionState state) {
+        int electionId = state.getElectionId();
+        String regionId = state.getRegionId();
+        if (runningElections.contains(electionId)) {
+            return;
+        }
+        
+        ElectionResults results = state.getResults();
+        runningElections.add(electionId);
+        
+        plugin.getDatabaseManager().supplyAsync(conn -> loadCompleted(conn, electionId)).thenCompose(completed -> {
+            if (completed.size() < Stage.values().length) {
+                plugin.getLogger().info("Running results transition of election " + electionId + ", completed stages: " + completed);
+            }
+            
+            CompletableFuture<Void> persisted = completed.contains(Stage.RESULTS)
+                ? CompletableFuture.completedFuture(null)
+                : persistResults(electionId, results);
+            
+            return persisted.thenCompose(ignored -> plugin.getDatabaseManager().supplyAsync(conn -> loadWinners(conn, electionId)))
+                .thenCompose(winners -> {
+                    CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+                    for (Stage stage : Stage.values()) {
+                        if (stage != Stage.RESULTS && !completed.contains(stage)) {
+                            chain = chain.thenCompose(ignored -> runStage(stage, electionId, regionId, winners));
+                        }
+                    }
+                    return chain;
+                });
+        }).whenComplete((ignored, error) -> {
+            runningElections.remove(electionId);
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Results transition of election " + electionId
+                    + " stopped, the remaining stages run on the next start", error);
+            }
+        });
+    }
+    
+    private CompletableFuture<Void> persistResults(int electionId, ElectionResults results) {
+        return plugin.getDatabaseManager().inTransaction(conn -> {
+            if (claim(conn, electionId, Stage.RESULTS)) {
+                persistWinners(conn, electionId, results);
+            }
+            return null;
+        });
+    }
+    
+    private CompletableFuture<Void> runStage(Stage stage, int electionId, String regionId, Winners winners) {
+        switch (stage) {
+            case REWARDS:
+                return plugin.getReputationManager().giveElectionRewards(electionId, regionId,
+                    conn -> claim(conn, electionId, Stage.REWARDS));
+            
+            case ROLES:
+                // LuckPerms is not part of the transaction, the assignment itself skips roles it already recorded.
+                // The stage is claimed only once every role was granted and recorded, a failure retries it.
+                return plugin.getRoleAssignmentManager().assignElectionRoles(electionId, regionId, winners.byRole.values())
+                    .thenCompose(ignored -> plugin.getDatabaseManager().runAsync(conn -> claim(conn, electionId, Stage.ROLES)));
+            
+            case ANNOUNCE:
+                // Claimed before announcing, an interrupted announcement is not repeated
+                return plugin.getDatabaseManager().supplyAsync(conn -> claim(conn, electionId, Stage.ANNOUNCE)).thenAccept(claimed -> {
+                    if (claimed) {
+                        announceWinners(regionId, winners);
+                    }
+                });
+            
+            default:
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    private Set<Stage> loadCompleted(Connection conn, int electionId) throws SQLException {
+        Set<Stage> completed = EnumSet.noneOf(Stage.class);
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT stage FROM transition_stages WHERE election_id = ?")) {
+            stmt.setInt(1, electionId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                try {
+                    completed.add(Stage.valueOf(rs.getString("stage")));
+                } catch (IllegalArgumentException e) {
+                    // Stage of a different plugin version
+                }
+            }
+        }
+        return completed;
+    }
+    
+    /**
+     * Record the stage as completed. False if it already was, the caller then skips its work.
+     */
+    private boolean claim(Connection conn, int electionId, Stage stage) throws SQLException {
+        String query = plugin.getDatabaseManager().getBackend().insertIgnore()
+            + " transition_stages (election_id, stage, completed_at) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, electionId);
+            stmt.setString(2, stage.name());
+            stmt.setLong(3, Instant.now().getEpochSecond());
+            return stmt.executeUpdate() > 0;
+        }
+    }
+    
+    private void persistWinners(Connection conn, int electionId, ElectionResults results) throws SQLException {
+        String query = plugin.getDatabaseManager().getBackend().insertOrReplace()
+            + " election_winners (election_id, role, candidate_id, player_uuid, player_name, votes, tied) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (Map.Entry<String, Candidate> entry : results.getWinners().entrySet()) {
+                Candidate winner = entry.getValue();
+                stmt.setInt(1, electionId);
+                stmt.setString(2, entry.getKey());
+                stmt.setInt(3, winner.getId());
+                stmt.setString(4, winner.getPlayerUuid());
+                stmt.setString(5, winner.getPlayerName());
+                stmt.setInt(6, winner.getVotes());
+                stmt.setBoolean(7, results.isTied(entry.getKey()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    private Winners loadWinners(Connection conn, int electionId) throws SQLException {
+        Winners winners = new Winners();
+        String query = "SELECT role, candidate_id, player_uuid, player_name, votes, tied FROM election_winners WHERE election_id = ? ORDER BY votes DESC, role";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, electionId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String role = rs.getString("role");
+                winners.byRole.put(role, new Candidate(
+                    rs.getInt("candidate_id"),
+                    rs.getString("player_uuid"),
+                    rs.getString("player_name"),
+                    role,
+                    null,
+                    rs.getInt("votes")
+                ));
+                if (rs.getBoolean("tied")) {
+                    winners.tied.add(role);
+                }
+            }
+        }
+        return winners;
+    }
+    
+    private void broadcastMessage(String message) {
+        plugin.getServer().broadcastMessage(TextTemplate.colorize(message));
+    }
+    
+    private void announceWinners(String regionId, Winners winners) {
+        // Broadcast that voting ended
+        broadcastMessage("&6&l═══════════════════════════════");
+        broadcastMessage("&e&lHlasování bylo ukončeno!");
+        broadcastMessage("&7Výsledky voleb jsou nyní k dispozici.");
+        broadcastMessage("&6&l═══════════════════════════════");
+        
+        // Broadcast winners to all players
+        broadcastMessage("");
+        broadcastMessage("&6&l🏆 VÍTĚZOVÉ VOLEB 🏆");
+        broadcastMessage("&eRegion: &f" + plugin.getRegionManager().getRegion(regionId).getDisplayName());
+        broadcastMessage("");
+        for (Map.Entry<String, Candidate> entry : winners.byRole.entrySet()) {
+            String role = entry.getKey();
+            Candidate winner = entry.getValue();
+            broadcastMessage("&6" + role + ": &f" + winner.getPlayerName() + " &7(" + winner.getVotes() + " hlasů)"
+                + (winners.tied.contains(role) ? " &8(shoda hlasů)" : ""));
+            
+            // Send title and fireworks to winner if online
+            Player winnerPlayer = plugin.getServer().getPlayer(UUID.fromString(winner.getPlayerUuid()));
+            if (winnerPlayer != null && winnerPlayer.isOnline()) {
+                sendWinnerTitle(winnerPlayer, role);
+                launchFireworks(winnerPlayer.getLocation(), 5);
+            }
+        }
+        
+        broadcastMessage("");
+    }
+    
+    private void sendWinnerTitle(Player player, String role) {
+        // Send title using Adventure API (Paper/Spigot 1.20+)
+        Component mainTitle = Component.text("§6§l✨ VYHRÁLI JSTE! ✨");
+        Component subtitle = Component.text("§eGratulujeme k vítězství v roli §f" + role);
+        
+        Title title = Title.title(
+            mainTitle,
+            subtitle,
+            Title.Times.times(
+                Duration.ofMillis(500),  // fade in
+                Duration.ofMillis(3500), // stay
+                Duration.ofMillis(1000)  // fade out
+            )
+        );
+        
+        player.showTitle(title);
+        player.sendMessage("§6§l═══════════════════════════════");
+        player.sendMessage("§e§lGRATULUJEME K VÍTĚZSTVÍ!");
+        player.sendMessage("§7Vyhráli jste volby v roli: §f" + role);
+        player.sendMessage("§7Vaše role byla aktivována a můžete ji používat.");
+        player.sendMessage("§6§l═══════════════════════════════");
+    }
+    
+    private void launchFireworks(Location location, int count) {
+        for (int i = 0; i < count; i++) {
+            new BukkitRunnable() {
+                @Override
+                public void run() {
+                    Firework firework = location.getWorld().spawn(location, Firework.class);
+                    FireworkMeta meta = firework.getFireworkMeta();
+                    
+                    // Random colors
+                    Color[] colors = {Color.RED, Color.YELLOW, Color.ORANGE, Color.LIME, Color.AQUA, Color.FUCHSIA};
+                    Color color1 = colors[new Random().nextInt(colors.length)];
+                    Color color2 = colors[new Random().nextInt(colors.length)];
+                    
+                    FireworkEffect effect = FireworkEffect.builder()
+                        .withColor(color1, color2)
+                        .withFade(Color.WHITE)
+                        .with(FireworkEffect.Type.BALL_LARGE)
+                        .trail(true)
+                        .flicker(true)
+                        .build();
+                    
+                    meta.addEffect(effect);
+                    meta.setPower(1);
+                    firework.setFireworkMeta(meta);
+                }
+            }.runTaskLater(plugin, i * 10L); // Spread fireworks over time
+        }
+    }
+    
+    /**
+     * Winners of an election as persisted in election_winners, in the order of their votes.
+     */
+    private static final class Winners {
+        private final Map<String, Candidate> byRole = new LinkedHashMap<>();
+        private final Set<String> tied = new HashSet<>();
+    }
+}
@@ -0,0 +1,127 @@
+package cz.domca.elections.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map with primitive long keys, e.g. packed chunk
+ * coordinates. Lookups neither box the key nor allocate. Entries cannot be
+ * removed, the map is meant to be built once and then only read.
+ * Not thread-safe.
+ */
+public class LongHashMap<V> {
+    
+    private static final int DEFAULT_CAPACITY = 64;
+    
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    
+    public LongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public LongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+    
+    /**
+     * Returns the previous value of the key, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        
+        if ((size + 1) * 2 > used.length) {
+            rehash(used.length * 2);
+        }
+        insert(key, value);
+        size++;
+        return null;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+    
+    private int indexOf(long key) {
+        int mask = used.length - 1;
+        int index = hash(key) & mask;
+        while (used[index]) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+    
+    private void insert(long key, Object value) {
+        int mask = used.length - 1;
+        int index = hash(key) & mask;
+        while (used[index]) {
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        keys[index] = key;
+        values[index] = value;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+    }
+    
+    static int hash(long key) {
+        // Packed coordinates of neighbouring chunks differ in few bits, mix them (Murmur3 finalizer)
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+    
+    static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,157 @@
+package cz.domca.elections.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Configured text with &amp; color codes and %name% placeholders, parsed once.
+ * Color codes are translated while parsing, so a template is a list of literal
+ * parts with placeholder names between them and rendering is a single append
+ * pass. Placeholder values may contain color codes too, they are translated
+ * while being appended. Unknown placeholders are kept as written.
+ */
+public final class TextTemplate {
+    
+    private static final String COLOR_CODES = "0123456789abcdefklmnor";
+    private static final Map<String, TextTemplate> CACHE = new ConcurrentHashMap<>();
+    
+    // literals.length == placeholders.length + 1, literal i comes before placeholder i
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+    
+    private TextTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+    
+    /**
+     * Compiled template of a configured string, parsed on first use.
+     * Only meant for text from the configs, use {@link #colorize(String)} for
+     * text assembled at runtime.
+     */
+    public static TextTemplate of(String source) {
+        return CACHE.computeIfAbsent(source == null ? "" : source, TextTemplate::compile);
+    }
+    
+    /**
+     * Forget all compiled templates, called when the configs are reloaded.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+    
+    public static TextTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(source.length());
+        
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '%') {
+                int end = source.indexOf('%', i + 1);
+                if (end > i + 1 && isPlaceholderName(source, i + 1, end)) {
+                    literals.add(literal.toString());
+                    placeholders.add(source.substring(i + 1, end));
+                    literal.setLength(0);
+                    i = end + 1;
+                    continue;
+                }
+            }
+            i = appendChar(literal, source, i);
+        }
+        literals.add(literal.toString());
+        
+        return new TextTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+    
+    /**
+     * Translate &amp; color codes of text that is not a configured template.
+     */
+    public static String colorize(String text) {
+        if (text == null) return "";
+        if (text.indexOf('&') < 0) return text;
+        
+        StringBuilder builder = new StringBuilder(text.length());
+        appendColorized(builder, text);
+        return builder.toString();
+    }
+    
+    /**
+     * Render a template without placeholder values.
+     */
+    public String render() {
+        return render(new String[0]);
+    }
+    
+    /**
+     * Render with placeholder values given as name, value pairs,
+     * e.g. {@code render("player", name, "votes", "3")}.
+     */
+    public String render(String... values) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+        
+        StringBuilder builder = new StringBuilder(literalLength + placeholders.length * 16);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            String value = lookup(values, placeholders[i]);
+            if (value != null) {
+                appendColorized(builder, value);
+            } else {
+                builder.append('%').append(placeholders[i]).append('%');
+            }
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+    
+    private static String lookup(String[] values, String name) {
+        for (int i = 0; i + 1 < values.length; i += 2) {
+            if (name.equals(values[i])) {
+                return values[i + 1];
+            }
+        }
+        return null;
+    }
+    
+    private static boolean isPlaceholderName(String source, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void appendColorized(StringBuilder builder, String text) {
+        int i = 0;
+        while (i < text.length()) {
+            i = appendChar(builder, text, i);
+        }
+    }
+    
+    // Appends the character at i, or the translated color code starting there; returns the next index
+    private static int appendChar(StringBuilder builder, String text, int i) {
+        char c = text.charAt(i);
+        if (c == '&' && i + 1 < text.length()) {
+            char code = Character.toLowerCase(text.charAt(i + 1));
+            if (COLOR_CODES.indexOf(code) >= 0) {
+                builder.append('§').append(code);
+                return i + 2;
+            }
+        }
+        builder.append(c);
+        return i + 1;
+    }
+}
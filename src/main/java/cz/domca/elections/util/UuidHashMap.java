@@ -0,0 +1,151 @@
+package cz.domca.elections.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing hash map keyed by UUIDs stored as two primitive longs per
+ * slot, the map counterpart of {@link UuidHashSet}. Lookups neither allocate
+ * nor box, so per-player state can be read on every move or interaction.
+ * Removal shifts the following entries back instead of leaving tombstones.
+ * Not thread-safe.
+ */
+public class UuidHashMap<V> {
+    
+    private static final int DEFAULT_CAPACITY = 64;
+    
+    private long[] most;
+    private long[] least;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    
+    public UuidHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public UuidHashMap(int expectedSize) {
+        allocate(UuidHashSet.tableSizeFor(expectedSize));
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(UUID uuid) {
+        int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return index >= 0 ? (V) values[index] : null;
+    }
+    
+    public boolean containsKey(UUID uuid) {
+        return indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+    }
+    
+    /**
+     * Returns the previous value of the key, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(UUID uuid, V value) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int index = indexOf(msb, lsb);
+        if (index >= 0) {
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        
+        if ((size + 1) * 2 > used.length) {
+            rehash(used.length * 2);
+        }
+        insert(msb, lsb, value);
+        size++;
+        return null;
+    }
+    
+    /**
+     * Returns the removed value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(UUID uuid) {
+        int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (index < 0) {
+            return null;
+        }
+        
+        V removed = (V) values[index];
+        int mask = used.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        // Move back every following entry of the probe run that would no longer be reachable
+        while (used[next]) {
+            int home = UuidHashSet.hash(most[next], least[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                most[gap] = most[next];
+                least[gap] = least[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+    
+    private int indexOf(long msb, long lsb) {
+        int mask = used.length - 1;
+        int index = UuidHashSet.hash(msb, lsb) & mask;
+        while (used[index]) {
+            if (most[index] == msb && least[index] == lsb) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+    
+    private void insert(long msb, long lsb, Object value) {
+        int mask = used.length - 1;
+        int index = UuidHashSet.hash(msb, lsb) & mask;
+        while (used[index]) {
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        most[index] = msb;
+        least[index] = lsb;
+        values[index] = value;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldMost[i], oldLeast[i], oldValues[i]);
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+    }
+}
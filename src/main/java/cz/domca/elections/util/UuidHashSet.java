@@ -0,0 +1,123 @@
+package cz.domca.elections.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing hash set of UUIDs stored as two primitive longs per slot.
+ * Lookups do not allocate and need no boxing, which keeps membership checks
+ * on hot paths (GUI opens, clicks) cheap even for large voter populations.
+ * Not thread-safe.
+ */
+public class UuidHashSet {
+    
+    private static final int DEFAULT_CAPACITY = 64;
+    
+    private long[] most;
+    private long[] least;
+    private boolean[] used;
+    private int size;
+    
+    public UuidHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public UuidHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+    
+    public boolean contains(UUID uuid) {
+        return indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+    }
+    
+    /**
+     * Returns true if the UUID was not yet present.
+     */
+    public boolean add(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (indexOf(msb, lsb) >= 0) {
+            return false;
+        }
+        
+        if ((size + 1) * 2 > used.length) {
+            rehash(used.length * 2);
+        }
+        insert(msb, lsb);
+        size++;
+        return true;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+    
+    private int indexOf(long msb, long lsb) {
+        int mask = used.length - 1;
+        int index = hash(msb, lsb) & mask;
+        while (used[index]) {
+            if (most[index] == msb && least[index] == lsb) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+    
+    private void insert(long msb, long lsb) {
+        int mask = used.length - 1;
+        int index = hash(msb, lsb) & mask;
+        while (used[index]) {
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        most[index] = msb;
+        least[index] = lsb;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldMost[i], oldLeast[i]);
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        used = new boolean[capacity];
+    }
+    
+    static int hash(long msb, long lsb) {
+        // Murmur3 finalizer, random UUIDs are already well mixed but name-based ones are not
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+    
+    static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
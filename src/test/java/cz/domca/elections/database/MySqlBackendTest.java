@@ -0,0 +1,189 @@
+package cz.domca.elections.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the MySQL schema, migrations and dialect SQL against an embedded H2
+ * database in MySQL mode, so the backend can be checked without a server.
+ */
+class MySqlBackendTest {
+    
+    private static final String URL = "jdbc:h2:mem:elections;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    
+    // Only the pool settings need the plugin
+    private final MySqlBackend backend = new MySqlBackend(null);
+    private Connection conn;
+    
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection(URL);
+        for (String statement : backend.getCreateTableStatements()) {
+            execute(statement);
+        }
+        new SchemaMigrator(Logger.getLogger("MySqlBackendTest"), backend).migrate(conn);
+    }
+    
+    @AfterEach
+    void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        conn.close();
+    }
+    
+    @Test
+    void schemaAndMigrationsCanBeAppliedAgain() throws SQLException {
+        for (String statement : backend.getCreateTableStatements()) {
+            execute(statement);
+        }
+        new SchemaMigrator(Logger.getLogger("MySqlBackendTest"), backend).migrate(conn);
+        
+        assertEquals(4, queryInt("SELECT MAX(version) FROM schema_version"));
+        assertEquals(4, queryInt("SELECT COUNT(*) FROM schema_version"));
+    }
+    
+    @Test
+    void analyzesEveryTable() throws SQLException {
+        for (String statement : backend.getAnalyzeStatements()) {
+            execute(statement);
+        }
+    }
+    
+    @Test
+    void timestampsAreWrittenByTheQuery() throws SQLException {
+        long before = Instant.now().getEpochSecond();
+        int electionId = insertElection();
+        
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT created_at FROM elections WHERE id = ?")) {
+            stmt.setInt(1, electionId);
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            assertTrue(rs.getLong(1) >= before - 1);
+        }
+    }
+    
+    @Test
+    void insertIgnoreSkipsDuplicateVotes() throws SQLException {
+        int electionId = insertElection();
+        int candidateId = insertCandidate(electionId);
+        
+        String query = backend.insertIgnore() + " votes (election_id, voter_uuid, candidate_id, voted_at) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < 2; i++) {
+                stmt.setInt(1, electionId);
+                stmt.setString(2, "00000000-0000-0000-0000-000000000002");
+                stmt.setInt(3, candidateId);
+                stmt.setLong(4, Instant.now().getEpochSecond());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM votes"));
+    }
+    
+    @Test
+    void insertOrReplaceOverwritesTheWinner() throws SQLException {
+        int electionId = insertElection();
+        
+        String query = backend.insertOrReplace()
+            + " election_winners (election_id, role, candidate_id, player_uuid, player_name, votes, tied) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int votes = 1; votes <= 2; votes++) {
+                stmt.setInt(1, electionId);
+                stmt.setString(2, "rychtar");
+                stmt.setInt(3, 1);
+                stmt.setString(4, "00000000-0000-0000-0000-000000000001");
+                stmt.setString(5, "Player");
+                stmt.setInt(6, votes);
+                stmt.setBoolean(7, false);
+                stmt.executeUpdate();
+            }
+        }
+        
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM election_winners"));
+        assertEquals(2, queryInt("SELECT votes FROM election_winners"));
+    }
+    
+    @Test
+    void upsertAddsToTheExistingRow() throws SQLException {
+        String query = "INSERT INTO reputation (player_uuid, player_name, reputation, last_updated) VALUES (?, ?, ?, "
+            + backend.currentTime() + ") "
+            + backend.upsert("player_uuid", "reputation = reputation.reputation + " + backend.excluded("reputation")
+                + ", last_updated = " + backend.currentTime());
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < 2; i++) {
+                stmt.setString(1, "00000000-0000-0000-0000-000000000001");
+                stmt.setString(2, "Player");
+                stmt.setInt(3, 5);
+                stmt.executeUpdate();
+            }
+        }
+        
+        assertEquals(10, queryInt("SELECT reputation FROM reputation"));
+    }
+    
+    @Test
+    void createsConnectionPrivateTables() throws SQLException {
+        execute(backend.createTempTable() + " election_rewards (player_uuid VARCHAR(36), amount INT)");
+        execute("INSERT INTO election_rewards (player_uuid, amount) VALUES ('a', 1)");
+        
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM election_rewards"));
+    }
+    
+    private int insertElection() throws SQLException {
+        String query = "INSERT INTO elections (region_id, phase, start_time, created_at) VALUES (?, ?, ?, "
+            + backend.currentTime() + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, "vojtechov");
+            stmt.setString(2, "VOTING");
+            stmt.setLong(3, Instant.now().getEpochSecond());
+            stmt.executeUpdate();
+            ResultSet rs = stmt.getGeneratedKeys();
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+    
+    private int insertCandidate(int electionId) throws SQLException {
+        String query = "INSERT INTO candidates (election_id, player_uuid, player_name, role, slogan, created_at) VALUES (?, ?, ?, ?, ?, "
+            + backend.currentTime() + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, electionId);
+            stmt.setString(2, "00000000-0000-0000-0000-000000000001");
+            stmt.setString(3, "Player");
+            stmt.setString(4, "rychtar");
+            stmt.setString(5, "Slogan");
+            stmt.executeUpdate();
+            ResultSet rs = stmt.getGeneratedKeys();
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+    
+    private int queryInt(String query) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery(query);
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+    
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}